@@ -0,0 +1,77 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import study.datajpa.entity.AuditingClock;
+import study.datajpa.entity.CoarseAuditingClock;
+import study.datajpa.entity.FlushAuditingClock;
+import study.datajpa.entity.SystemAuditingClock;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// AuditingClock 모드별 비용 (-prof gc 로 엔티티당 할당량을 같이 본다)
+// 대량 등록처럼 한 flush 에 BATCH_SIZE 개 엔티티의 등록일을 채우는 상황을 흉내낸다.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuditingClockBenchmark {
+
+    static final int BATCH_SIZE = 50;
+
+    @Param({"system", "coarse", "flush"})
+    public String mode;
+
+    AuditingClock auditingClock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Clock clock = Clock.systemDefaultZone();
+        switch (mode) {
+            case "system":
+                auditingClock = new SystemAuditingClock(clock);
+                break;
+            case "coarse":
+                auditingClock = new CoarseAuditingClock(clock, Duration.ofMillis(10));
+                break;
+            default:
+                auditingClock = new FlushAuditingClock(clock);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (auditingClock instanceof AutoCloseable) {
+            ((AutoCloseable) auditingClock).close();
+        }
+    }
+
+    // 결과는 엔티티 한 건당 시간
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void stampBatch(Blackhole blackhole) {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            blackhole.consume(auditingClock.now());
+        }
+        if (auditingClock instanceof FlushAuditingClock) {
+            ((FlushAuditingClock) auditingClock).reset(); // flush 끝
+        }
+    }
+}
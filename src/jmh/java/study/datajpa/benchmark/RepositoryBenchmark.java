@@ -0,0 +1,165 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.KeysetSlice;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 레포지토리 핫 패스 벤치마크
+// 각 벤치마크는 실제 요청처럼 트랜잭션 하나 안에서 실행한다. (쓰기 벤치마크는 롤백해서 데이터셋을 유지한다)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    // 스레드마다 조회할 id, username 을 돌려가며 고른다.
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        String deepKeysetToken;
+
+        @Setup(Level.Trial)
+        public void prepare(RepositoryState state) {
+            // age = 0 인 Member 의 마지막 페이지로 가는 커서를 미리 구해둔다.
+            deepKeysetToken = state.readOnlyTx.execute(status -> {
+                String token = null;
+                KeysetSlice<Member> slice = state.memberRepository.findByAgeKeyset(0, null, RepositoryState.PAGE_SIZE);
+                while (slice.hasNext()) {
+                    token = slice.getNextToken();
+                    slice = state.memberRepository.findByAgeKeyset(0, token, RepositoryState.PAGE_SIZE);
+                }
+                return token;
+            });
+        }
+
+        int nextIndex() {
+            return next++;
+        }
+    }
+
+    @Benchmark
+    public Member save(RepositoryState state, Cursor cursor) {
+        return state.tx.execute(status -> {
+            Member member = state.memberRepository.save(new Member("bench" + cursor.nextIndex(), 30));
+            state.memberRepository.flush();
+            status.setRollbackOnly();
+            return member;
+        });
+    }
+
+    @Benchmark
+    public Member findById(RepositoryState state, Cursor cursor) {
+        long id = state.anyMemberId(cursor.nextIndex());
+        return state.readOnlyTx.execute(status -> state.memberRepository.findById(id).orElse(null));
+    }
+
+    // findByUsername : NamedQuery vs 쿼리 메서드 vs @Query
+    @Benchmark
+    public List<Member> findByUsernameNamedQuery(RepositoryState state, Cursor cursor) {
+        String username = RepositoryState.username(cursor.nextIndex() % state.datasetSize);
+        return state.readOnlyTx.execute(status -> state.memberRepository.findByUsername(username));
+    }
+
+    @Benchmark
+    public List<Member> findByUsernameDerived(RepositoryState state, Cursor cursor) {
+        String username = RepositoryState.username(cursor.nextIndex() % state.datasetSize);
+        return state.readOnlyTx.execute(status -> state.memberRepository.findListByUsername(username));
+    }
+
+    @Benchmark
+    public List<Member> findByUsernameQueryAnnotation(RepositoryState state, Cursor cursor) {
+        int index = cursor.nextIndex() % state.datasetSize;
+        String username = RepositoryState.username(index);
+        return state.readOnlyTx.execute(status -> state.memberRepository.findUser(username, index % RepositoryState.AGES));
+    }
+
+    // DTO 프로젝션 vs 엔티티 (fetch join) 전체 조회
+    @Benchmark
+    public List<MemberDto> findMemberDto(RepositoryState state) {
+        return state.readOnlyTx.execute(status -> state.memberRepository.findMemberDto());
+    }
+
+    // select new (행마다 Object[] 튜플 + 리플렉션) vs ProjectionMaterializer (생성자 직접 호출)
+    // -prof gc 의 gc.alloc.rate.norm 을 datasetSize 로 나누면 행 당 할당 바이트
+    @Benchmark
+    public List<MemberDto> findMemberDtoDirect(RepositoryState state) {
+        return state.readOnlyTx.execute(status -> state.memberRepository.findMemberDtoDirect());
+    }
+
+    @Benchmark
+    public List<Member> findMemberFetchJoin(RepositoryState state) {
+        return state.readOnlyTx.execute(status -> state.memberRepository.findMemberFetchJoin());
+    }
+
+    @Benchmark
+    public List<Member> findMemberEntityGraph(RepositoryState state) {
+        return state.readOnlyTx.execute(status -> state.memberRepository.findMemberEntityGraph());
+    }
+
+    // 쓰기 트랜잭션 안에서 전체 조회 + flush : @ReadOnlyQuery (findAll) vs 일반 조회 (findMemberEntityGraph, 같은 SQL)
+    // readOnly 는 스냅샷을 만들지 않고 flush 때 변경 감지도 건너뛰므로 할당량과 flush 비용이 줄어야 한다.
+    @Benchmark
+    public List<Member> findAllReadOnlyThenFlush(RepositoryState state) {
+        return state.tx.execute(status -> {
+            List<Member> members = state.memberRepository.findAll();
+            state.memberRepository.flush();
+            return members;
+        });
+    }
+
+    @Benchmark
+    public List<Member> findAllManagedThenFlush(RepositoryState state) {
+        return state.tx.execute(status -> {
+            List<Member> members = state.memberRepository.findMemberEntityGraph();
+            state.memberRepository.flush();
+            return members;
+        });
+    }
+
+    // offset 페이징 : 첫 페이지 vs 마지막 페이지
+    @Benchmark
+    public Page<Member> findByAgeShallowPage(RepositoryState state) {
+        PageRequest pageRequest = PageRequest.of(0, RepositoryState.PAGE_SIZE, Sort.by(Sort.Direction.DESC, "username"));
+        return state.readOnlyTx.execute(status -> state.memberRepository.findByAge(10, pageRequest));
+    }
+
+    @Benchmark
+    public Page<Member> findByAgeDeepPage(RepositoryState state) {
+        PageRequest pageRequest = PageRequest.of(state.deepPage(), RepositoryState.PAGE_SIZE, Sort.by(Sort.Direction.DESC, "username"));
+        return state.readOnlyTx.execute(status -> state.memberRepository.findByAge(10, pageRequest));
+    }
+
+    // keyset 페이징은 깊이와 상관없이 비용이 같아야 한다.
+    @Benchmark
+    public KeysetSlice<Member> findByAgeKeysetDeepPage(RepositoryState state, Cursor cursor) {
+        return state.readOnlyTx.execute(status ->
+                state.memberRepository.findByAgeKeyset(0, cursor.deepKeysetToken, RepositoryState.PAGE_SIZE));
+    }
+
+    @Benchmark
+    public int bulkAgePlus(RepositoryState state) {
+        return state.tx.execute(status -> {
+            int updated = state.memberRepository.bulkAgePlus(RepositoryState.AGES / 2);
+            status.setRollbackOnly();
+            return updated;
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.DataJpaApplication;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberJpaRepository;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// 벤치마크 공용 상태 : 인메모리 H2 로 스프링 컨텍스트를 띄우고 datasetSize 만큼 Member 를 넣어둔다.
+// Member 는 teamCount 개 팀에 골고루, 나이는 0 ~ 99 로 나눠 들어간다.
+// 조회 결과를 메모리에 들고 있는 캐시는 끈다. (쿼리 자체의 비용을 재야 하므로)
+// 기동 시 워밍업도 끈다. 데우는 건 JMH 의 warmup iteration 이 한다.
+@State(Scope.Benchmark)
+public class RepositoryState {
+
+    static final int AGES = 100;
+    static final int PAGE_SIZE = 20;
+
+    @Param({"10000"})
+    public int datasetSize;
+
+    @Param({"100"})
+    public int teamCount;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    MemberJpaRepository memberJpaRepository;
+    TransactionTemplate tx;
+    TransactionTemplate readOnlyTx;
+
+    long[] memberIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.format_sql=false",
+                        "logging.level.org.hibernate.SQL=warn",
+                        "datajpa.metrics.slow-query-threshold=1h",
+                        "datajpa.page-cache.enabled=false",
+                        "datajpa.username-index.enabled=false",
+                        "datajpa.warmup.enabled=false")
+                .run();
+
+        memberRepository = context.getBean(MemberRepository.class);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        tx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+
+        List<Team> teams = IntStream.range(0, teamCount)
+                .mapToObj(i -> new Team("team" + i))
+                .collect(Collectors.toList());
+        teamRepository.saveAllBatched(teams, 50);
+
+        List<Member> members = new ArrayList<>(datasetSize);
+        for (int i = 0; i < datasetSize; i++) {
+            members.add(new Member(username(i), i % AGES, teams.get(i % teamCount)));
+        }
+        memberRepository.saveAllBatched(members, 50);
+        memberIds = members.stream().mapToLong(Member::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    static String username(int index) {
+        return "member" + index;
+    }
+
+    int deepPage() {
+        return Math.max(0, datasetSize / PAGE_SIZE - 1);
+    }
+
+    long anyMemberId(int index) {
+        return memberIds[Math.floorMod(index, memberIds.length)];
+    }
+}
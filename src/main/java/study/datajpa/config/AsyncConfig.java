@@ -0,0 +1,88 @@
+package study.datajpa.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// 레포지토리의 @Async 메서드 (CompletableFuture 반환) 를 실행할 executor
+// 각 작업은 executor 스레드에서 자기 트랜잭션, 자기 EntityManager 로 실행된다. (호출한 스레드의 트랜잭션과 무관)
+// 동시에 실행되는 작업 수는 pool-size 로 제한한다. DB 커넥션 풀 크기보다 크게 잡아봐야 커넥션을 기다리기만 한다.
+@Slf4j
+@EnableAsync
+@Configuration
+public class AsyncConfig {
+
+    public static final String REPOSITORY_EXECUTOR = "repositoryExecutor";
+
+    @Value("${datajpa.async.pool-size:10}")
+    private int poolSize;
+
+    @Value("${datajpa.async.queue-capacity:1000}")
+    private int queueCapacity;
+
+    // Java 21 이상에서 true 로 두면 가상 스레드로 실행한다. (그 이하 버전이면 일반 스레드 풀로 대체)
+    @Value("${datajpa.async.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Bean(name = REPOSITORY_EXECUTOR)
+    public TaskExecutor repositoryExecutor() {
+        if (virtualThreads) {
+            ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+            if (virtual != null) {
+                return new BoundedTaskExecutor(new TaskExecutorAdapter(virtual), poolSize);
+            }
+            log.warn("가상 스레드를 지원하지 않는 JVM 입니다. 일반 스레드 풀로 실행합니다. (java {})", Runtime.version());
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("repository-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity); // 큐가 꽉 차면 TaskRejectedException (CompletableFuture 가 예외로 완료된다)
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    // 소스는 Java 11 기준이라 Executors.newVirtualThreadPerTaskExecutor() 를 리플렉션으로 찾는다.
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // 가상 스레드는 개수 제한이 없으므로 세마포어로 동시 실행 수를 제한한다.
+    static class BoundedTaskExecutor implements TaskExecutor {
+
+        private final TaskExecutor delegate;
+        private final Semaphore permits;
+
+        BoundedTaskExecutor(TaskExecutor delegate, int maxConcurrency) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(maxConcurrency);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            delegate.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package study.datajpa.config;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.datajpa.entity.AuditingClock;
+import study.datajpa.entity.CoarseAuditingClock;
+import study.datajpa.entity.FlushAuditingClock;
+import study.datajpa.entity.SystemAuditingClock;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Clock;
+import java.time.Duration;
+
+// 등록일, 수정일에 쓸 AuditingClock 설정
+// java.time.Clock 빈이 있으면 그 시계를 쓴다. (테스트에서 시간을 고정하거나 조작할 때)
+@Configuration
+public class AuditingConfig {
+
+    @Value("${datajpa.auditing.clock:coarse}")
+    private String mode;
+
+    @Value("${datajpa.auditing.resolution:10ms}")
+    private Duration resolution;
+
+    @Bean
+    public AuditingClock auditingClock(ObjectProvider<Clock> clock) {
+        Clock source = clock.getIfAvailable(Clock::systemDefaultZone);
+        switch (mode) {
+            case "system":
+                return new SystemAuditingClock(source);
+            case "coarse":
+                return new CoarseAuditingClock(source, resolution);
+            case "flush":
+                return new FlushAuditingClock(source);
+            default:
+                throw new IllegalArgumentException("datajpa.auditing.clock 은 system, coarse, flush 중 하나여야 합니다: " + mode);
+        }
+    }
+
+    // flush 모드는 flush 가 끝날 때마다 시간을 버려야 하므로 하이버네이트 flush 리스너로 등록한다.
+    // (엔티티 리스너가 AuditingClock 을 주입받는 동안 EntityManagerFactory 를 기다리지 않도록 따로 등록)
+    @Bean
+    public SmartInitializingSingleton flushAuditingClockRegistrar(AuditingClock auditingClock, EntityManagerFactory emf) {
+        return () -> {
+            if (!(auditingClock instanceof FlushAuditingClock)) {
+                return;
+            }
+            EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                    .getServiceRegistry()
+                    .getService(EventListenerRegistry.class);
+            registry.appendListeners(EventType.FLUSH, (FlushAuditingClock) auditingClock);
+            registry.appendListeners(EventType.AUTO_FLUSH, (FlushAuditingClock) auditingClock);
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package study.datajpa.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.datajpa.repository.ConnectionPoolMetrics;
+
+// datajpa.jdbc 설정을 HikariCP 와 하이버네이트에 적용한다.
+@Configuration
+@EnableConfigurationProperties(DataAccessProperties.class)
+public class DataAccessConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer dataAccessHibernateProperties(DataAccessProperties properties) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.STATEMENT_BATCH_SIZE, properties.getBatchSize());
+            hibernateProperties.put(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE, properties.getBatchFetchSize());
+            hibernateProperties.put(AvailableSettings.STATEMENT_FETCH_SIZE, properties.getFetchSize());
+            hibernateProperties.put(AvailableSettings.QUERY_PLAN_CACHE_MAX_SIZE, properties.getQueryPlanCacheSize());
+        };
+    }
+
+    // 풀은 첫 커넥션을 얻을 때 시작되므로, 스프링 부트가 spring.datasource.hikari 를 바인딩한 다음 (초기화 후) 덮어쓴다.
+    // BeanPostProcessor 는 다른 빈보다 먼저 만들어지므로 static 으로 두고 나머지 빈은 필요할 때 꺼낸다.
+    @Bean
+    public static BeanPostProcessor hikariPoolConfigurer(ObjectProvider<DataAccessProperties> properties,
+                                                         ObjectProvider<ConnectionPoolMetrics> metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource) {
+                    configure((HikariDataSource) bean, properties.getObject(), metrics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static void configure(HikariDataSource dataSource, DataAccessProperties properties, ConnectionPoolMetrics metrics) {
+        dataSource.setMaximumPoolSize(properties.getPoolSize());
+        dataSource.setMinimumIdle(properties.getMinimumIdle());
+        dataSource.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        dataSource.setMetricsTrackerFactory(metrics);
+
+        // prepared statement 캐시는 드라이버마다 설정 이름이 다르다.
+        String url = String.valueOf(dataSource.getJdbcUrl());
+        int cacheSize = properties.getStatementCacheSize();
+        if (url.startsWith("jdbc:h2:")) {
+            dataSource.addDataSourceProperty("QUERY_CACHE_SIZE", cacheSize);
+        } else if (url.startsWith("jdbc:mysql:")) {
+            dataSource.addDataSourceProperty("cachePrepStmts", cacheSize > 0);
+            dataSource.addDataSourceProperty("prepStmtCacheSize", cacheSize);
+        } else if (url.startsWith("jdbc:postgresql:")) {
+            dataSource.addDataSourceProperty("preparedStatementCacheQueries", cacheSize);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package study.datajpa.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// 데이터 접근 계층 튜닝 값 (application.yml 의 datajpa.jdbc)
+// 커넥션 풀은 HikariCP, 나머지는 하이버네이트 설정으로 들어간다. (DataAccessConfig 참고)
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "datajpa.jdbc")
+public class DataAccessProperties {
+
+    // 커넥션 풀 최대 크기. 동시에 DB 를 쓰는 스레드 수 (웹 요청 + 비동기 executor) 에 맞춘다.
+    private int poolSize = 10;
+
+    // 유휴 커넥션 최소 개수. 없으면 poolSize 와 같다. (고정 크기 풀)
+    private Integer minimumIdle;
+
+    // 커넥션을 이 시간 안에 얻지 못하면 예외 (풀 크기가 부족하다는 신호)
+    private Duration connectionTimeout = Duration.ofSeconds(3);
+
+    // 커넥션 당 prepared statement 캐시 크기 (드라이버 설정으로 들어간다)
+    private int statementCacheSize = 64;
+
+    // insert, update 를 몇 개씩 묶어서 JDBC batch 로 보낼지 (시퀀스 allocationSize 와 맞춤)
+    private int batchSize = 50;
+
+    // 지연 로딩 프록시, 컬렉션을 한 번에 최대 몇 개씩 IN 쿼리로 가져올지 (N + 1 방지)
+    private int batchFetchSize = 100;
+
+    // 조회 결과를 DB 에서 한 번에 몇 행씩 가져올지
+    private int fetchSize = 100;
+
+    // JPQL -> SQL 변환 결과 (쿼리 플랜) 캐시 크기
+    private int queryPlanCacheSize = 2048;
+
+    public int getMinimumIdle() {
+        return minimumIdle != null ? minimumIdle : poolSize;
+    }
+}
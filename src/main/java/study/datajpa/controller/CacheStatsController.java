@@ -0,0 +1,63 @@
+package study.datajpa.controller;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.dto.CacheRegionStatsDto;
+import study.datajpa.repository.PageSnapshotCache;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// 2차 캐시, 쿼리 캐시의 hit/miss 를 확인하는 용도 (hibernate.generate_statistics: true 필요)
+@RestController
+public class CacheStatsController {
+
+    private final Statistics statistics;
+    private final SessionFactory sessionFactory;
+    private final PageSnapshotCache pageSnapshots;
+
+    public CacheStatsController(EntityManagerFactory emf, PageSnapshotCache pageSnapshots) {
+        this.pageSnapshots = pageSnapshots;
+        this.sessionFactory = emf.unwrap(SessionFactory.class);
+        this.statistics = sessionFactory.getStatistics();
+    }
+
+    @GetMapping("/cache/stats")
+    public List<CacheRegionStatsDto> stats() {
+        List<CacheRegionStatsDto> result = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(region);
+            if (regionStats == null) {
+                continue;
+            }
+            result.add(new CacheRegionStatsDto(
+                    region,
+                    regionStats.getHitCount(),
+                    regionStats.getMissCount(),
+                    regionStats.getPutCount(),
+                    regionStats.getElementCountInMemory()));
+        }
+
+        result.add(new CacheRegionStatsDto(
+                "(query cache)",
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount(),
+                -1));
+
+        result.add(pageSnapshots.stats());
+        return result;
+    }
+
+    // 캐시를 전부 비운다. (운영 중 데이터를 직접 고쳤을 때 등)
+    @PostMapping("/cache/evict")
+    public void evictAll() {
+        sessionFactory.getCache().evictAllRegions();
+        pageSnapshots.invalidateAll();
+    }
+}
@@ -0,0 +1,72 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.dto.BatchFetchStatsDto;
+import study.datajpa.dto.ConnectionPoolStatsDto;
+import study.datajpa.dto.OptimisticLockStatsDto;
+import study.datajpa.dto.QueryWarmupDto;
+import study.datajpa.dto.RepositoryMethodStatsDto;
+import study.datajpa.dto.StatementCacheStatsDto;
+import study.datajpa.repository.BatchFetchStatistics;
+import study.datajpa.repository.ConnectionPoolMetrics;
+import study.datajpa.repository.OptimisticLockRetryExecutor;
+import study.datajpa.repository.RepositoryMetricsAspect;
+import study.datajpa.repository.RepositoryWarmup;
+import study.datajpa.repository.StatementCacheStatistics;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class JpaStatsController {
+
+    private final BatchFetchStatistics batchFetchStatistics;
+    private final RepositoryMetricsAspect repositoryMetrics;
+    private final OptimisticLockRetryExecutor retryExecutor;
+    private final ConnectionPoolMetrics connectionPoolMetrics;
+    private final StatementCacheStatistics statementCacheStatistics;
+    private final RepositoryWarmup repositoryWarmup;
+
+    @GetMapping("/jpa/stats/batch-fetch")
+    public BatchFetchStatsDto batchFetch() {
+        return batchFetchStatistics.snapshot();
+    }
+
+    // 레포지토리 메서드별 호출 수, p50 / p99 응답 시간, 반환 행 수, 로딩 엔티티 수, flush 수, SQL 수
+    @GetMapping("/jpa/stats/repositories")
+    public List<RepositoryMethodStatsDto> repositories() {
+        return repositoryMetrics.snapshot();
+    }
+
+    @PostMapping("/jpa/stats/repositories/reset")
+    public void resetRepositories() {
+        repositoryMetrics.reset();
+    }
+
+    // 낙관적 락 충돌 / 재시도 통계
+    @GetMapping("/jpa/stats/optimistic-lock")
+    public OptimisticLockStatsDto optimisticLock() {
+        return retryExecutor.snapshot();
+    }
+
+    // 커넥션 풀 active / idle / 대기 시간 / 타임아웃
+    @GetMapping("/jpa/stats/pool")
+    public ConnectionPoolStatsDto pool() {
+        return connectionPoolMetrics.snapshot();
+    }
+
+    // 쿼리 플랜 캐시 hit 률, prepared statement 수
+    @GetMapping("/jpa/stats/statement-cache")
+    public StatementCacheStatsDto statementCache() {
+        return statementCacheStatistics.snapshot();
+    }
+
+    // 기동 시 레포지토리 쿼리 워밍업 결과 (쿼리별 컴파일, 실행 시간)
+    @GetMapping("/jpa/stats/warmup")
+    public List<QueryWarmupDto> warmup() {
+        return repositoryWarmup.getResults();
+    }
+}
@@ -0,0 +1,136 @@
+package study.datajpa.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberTeamSummaryDto;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+@RestController
+@RequiredArgsConstructor
+public class MemberController {
+
+    // 내보내기 : 드라이버가 한 번에 가져올 행 수, 몇 행마다 응답을 밀어낼지
+    private static final int EXPORT_FETCH_SIZE = 500;
+    private static final int EXPORT_FLUSH_ROWS = 500;
+
+    private final MemberRepository memberRepository;
+    private final TeamRepository teamRepository;
+    private final ObjectMapper objectMapper;
+
+    // 두 조회를 동시에 실행하고, 둘 다 끝나면 응답한다.
+    // CompletableFuture 를 반환하면 요청 스레드는 바로 반납되고, 결과가 준비되면 스프링 MVC 가 이어서 응답을 쓴다.
+    // 조회한 Member 는 준영속이라 team 을 건드리면 안 된다. (id, username 만 사용)
+    @GetMapping("/members/{username}/summary")
+    public CompletableFuture<MemberTeamSummaryDto> summary(@PathVariable String username) {
+        CompletableFuture<List<Member>> members = memberRepository.findAsyncListByUsername(username);
+        CompletableFuture<Long> teamCount = teamRepository.countAsyncBy();
+
+        return members.thenCombine(teamCount, (found, count) -> new MemberTeamSummaryDto(
+                found.stream()
+                        .map(member -> new MemberDto(member.getId(), member.getUsername(), null))
+                        .collect(Collectors.toList()),
+                count));
+    }
+
+    // 전체 Member 내보내기 (format = ndjson | csv)
+    // DB 커서에서 읽은 행을 List 로 모으지 않고 바로 응답에 쓴다. Content-Length 가 없으므로 chunked 로 나간다.
+    // 클라이언트가 느리게 받으면 응답 쓰기가 막히고, 그동안 커서도 더 읽지 않는다. (따로 버퍼링 X)
+    // 첫 행은 바로 flush 해서 테이블 크기와 상관없이 응답이 바로 시작된다.
+    // TODO 주의) 요청 스레드와 DB 커넥션을 내보내기가 끝날 때까지 잡고 있다. 중간에 실패하면 상태 코드는 바꿀 수 없고 응답이 끊긴다.
+    @GetMapping("/members/export")
+    public void export(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response) throws IOException {
+        RowWriter rowWriter;
+        if ("ndjson".equals(format)) {
+            response.setContentType("application/x-ndjson");
+            rowWriter = ndjsonWriter();
+        } else if ("csv".equals(format)) {
+            response.setContentType("text/csv");
+            response.setHeader("Content-Disposition", "attachment; filename=\"members.csv\"");
+            rowWriter = csvWriter();
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format 은 ndjson, csv 중 하나여야 합니다: " + format);
+        }
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        rowWriter.header(out);
+        long[] written = {0};
+        memberRepository.forEachMemberDto(EXPORT_FETCH_SIZE, member -> {
+            try {
+                rowWriter.row(out, member);
+                if (++written[0] == 1 || written[0] % EXPORT_FLUSH_ROWS == 0) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // 클라이언트가 끊으면 커서를 닫고 끝낸다.
+            }
+        });
+        out.flush();
+    }
+
+    private RowWriter ndjsonWriter() {
+        ObjectWriter json = objectMapper.writerFor(MemberDto.class);
+        return (out, member) -> {
+            out.write(json.writeValueAsString(member));
+            out.write('\n');
+        };
+    }
+
+    private static RowWriter csvWriter() {
+        return new RowWriter() {
+            @Override
+            public void header(Writer out) throws IOException {
+                out.write("id,username,teamName\r\n");
+            }
+
+            @Override
+            public void row(Writer out, MemberDto member) throws IOException {
+                out.write(String.valueOf(member.getId()));
+                out.write(',');
+                out.write(csv(member.getUsername()));
+                out.write(',');
+                out.write(csv(member.getTeamName()));
+                out.write("\r\n");
+            }
+        };
+    }
+
+    // 쉼표, 따옴표, 줄바꿈이 있으면 따옴표로 감싸고 따옴표는 두 번 쓴다. (RFC 4180) / null 은 빈 칸
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private interface RowWriter {
+        default void header(Writer out) throws IOException {
+        }
+
+        void row(Writer out, MemberDto member) throws IOException;
+    }
+}
@@ -0,0 +1,32 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+
+// 배치 페치로 아낀 N + 1 쿼리 수 (엔티티만, 컬렉션은 통계 값만 보여준다)
+@Data
+public class BatchFetchStatsDto {
+
+    private long lazyEntityLoads;         // 지연 로딩 프록시 초기화 횟수
+    private long batchFetchedEntityLoads; // 그 중 배치로 이미 가져와 있어서 쿼리 없이 초기화한 횟수
+    private long entityFetchQueries;      // 엔티티 fetch 쿼리 횟수
+    private long lazyCollectionInitializations; // 지연 로딩 컬렉션 초기화 횟수 (배치로 같이 초기화된 컬렉션은 세지 않는다)
+    private long collectionFetchQueries;        // 컬렉션 fetch 쿼리 횟수
+    private long collectionLoads;               // 로딩된 컬렉션 수 (fetch join, 즉시 로딩, 배치로 같이 초기화된 것 모두 포함)
+
+    public BatchFetchStatsDto(long lazyEntityLoads, long batchFetchedEntityLoads, long entityFetchQueries,
+                              long lazyCollectionInitializations, long collectionFetchQueries, long collectionLoads) {
+        this.lazyEntityLoads = lazyEntityLoads;
+        this.batchFetchedEntityLoads = batchFetchedEntityLoads;
+        this.entityFetchQueries = entityFetchQueries;
+        this.lazyCollectionInitializations = lazyCollectionInitializations;
+        this.collectionFetchQueries = collectionFetchQueries;
+        this.collectionLoads = collectionLoads;
+    }
+
+    // 배치 페치가 없었다면 배치로 같이 가져온 프록시도 초기화할 때마다 쿼리가 한 번씩 나갔을 것이다.
+    // 2차 캐시에서 꺼낸 프록시는 원래 쿼리가 없으므로 넣지 않는다. (BatchFetchStatistics 참고)
+    // 컬렉션은 (로딩 수 - fetch 쿼리 수) 에 fetch join 한 컬렉션까지 섞이므로 넣지 않는다.
+    public long getAvoidedQueries() {
+        return batchFetchedEntityLoads;
+    }
+}
@@ -0,0 +1,27 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+
+// 2차 캐시 region 별 hit/miss 통계
+@Data
+public class CacheRegionStatsDto {
+
+    private String region;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long elementCountInMemory;
+
+    public CacheRegionStatsDto(String region, long hitCount, long missCount, long putCount, long elementCountInMemory) {
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.elementCountInMemory = elementCountInMemory;
+    }
+
+    public double getHitRatio() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+}
@@ -0,0 +1,23 @@
+package study.datajpa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// 커넥션 풀 상태 + 누적 통계
+@Data
+@AllArgsConstructor
+public class ConnectionPoolStatsDto {
+
+    private String poolName;
+    private int active;           // 사용 중인 커넥션
+    private int idle;             // 놀고 있는 커넥션
+    private int total;
+    private int max;              // datajpa.jdbc.pool-size
+    private int pendingThreads;   // 지금 커넥션을 기다리는 스레드 수
+    private long created;         // 새로 만든 커넥션 수
+    private long acquired;        // 커넥션을 얻은 횟수
+    private long timeouts;        // connection-timeout 안에 못 얻은 횟수
+    private long waitP50Micros;   // 커넥션을 얻기까지 기다린 시간
+    private long waitP99Micros;
+    private double meanUsageMillis; // 커넥션을 빌려서 반납하기까지 평균 시간
+}
@@ -1,9 +1,12 @@
 package study.datajpa.dto;
 
-import lombok.Data;
+import lombok.Getter;
+import lombok.ToString;
 
 // DTO 라 그냥 @Data 사ㅛㅇㅇ
-@Data
+// -> 조회 결과를 담아서 내보내기만 하므로 getter, toString 만 남겼다. (setter, equals, hashCode 안 씀)
+@Getter
+@ToString
 public class MemberDto {
 
     private Long id;
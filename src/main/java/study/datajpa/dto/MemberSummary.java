@@ -0,0 +1,11 @@
+package study.datajpa.dto;
+
+// 인터페이스 기반 Projection (Closed Projection)
+// 조회 메서드의 반환 타입으로 쓰면 getter 에 해당하는 컬럼만 select 한다. (엔티티를 만들지 않고 영속성 컨텍스트에도 안 올라감)
+// 예) List<MemberSummary> result = memberRepository.findByAge(10, MemberSummary.class);
+public interface MemberSummary {
+
+    Long getId();
+    String getUsername();
+    int getAge();
+}
@@ -0,0 +1,18 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// 비동기 조회 두 개 (username 으로 Member 조회, 전체 팀 수) 를 합친 응답
+@Data
+public class MemberTeamSummaryDto {
+
+    private List<MemberDto> members;
+    private long teamCount;
+
+    public MemberTeamSummaryDto(List<MemberDto> members, long teamCount) {
+        this.members = members;
+        this.teamCount = teamCount;
+    }
+}
@@ -0,0 +1,26 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+
+// 낙관적 락 충돌 / 재시도 통계
+@Data
+public class OptimisticLockStatsDto {
+
+    private long executions;  // execute() 호출 수
+    private long attempts;    // 트랜잭션 시도 수 (재시도 포함)
+    private long conflicts;   // OptimisticLockException 발생 수
+    private long recovered;   // 재시도 끝에 성공한 수
+    private long exhausted;   // 최대 시도 횟수를 넘겨 실패한 수
+
+    public OptimisticLockStatsDto(long executions, long attempts, long conflicts, long recovered, long exhausted) {
+        this.executions = executions;
+        this.attempts = attempts;
+        this.conflicts = conflicts;
+        this.recovered = recovered;
+        this.exhausted = exhausted;
+    }
+
+    public double getConflictRate() {
+        return attempts == 0 ? 0.0 : (double) conflicts / attempts;
+    }
+}
@@ -0,0 +1,16 @@
+package study.datajpa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// 레포지토리 쿼리 워밍업 결과 (쿼리 메서드 하나)
+@Data
+@AllArgsConstructor
+public class QueryWarmupDto {
+
+    private String query;               // MemberRepository.findMemberDto
+    private double compileMillis;       // JPQL -> 쿼리 플랜 캐시
+    private int executions;             // 실행 횟수 (실행하지 않은 메서드는 0)
+    private double firstExecutionMillis;
+    private double lastExecutionMillis; // 첫 실행과 비교하면 얼마나 데워졌는지 보인다.
+}
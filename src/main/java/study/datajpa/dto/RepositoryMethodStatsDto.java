@@ -0,0 +1,31 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+
+// 레포지토리 메서드별 호출 통계
+@Data
+public class RepositoryMethodStatsDto {
+
+    private String method;
+    private long calls;
+    private double p50Millis;
+    private double p99Millis;
+    private double maxMillis;
+    private long rowsReturned;
+    private long entitiesLoaded;
+    private long flushes;
+    private long statements;
+
+    public RepositoryMethodStatsDto(String method, long calls, double p50Millis, double p99Millis, double maxMillis,
+                                    long rowsReturned, long entitiesLoaded, long flushes, long statements) {
+        this.method = method;
+        this.calls = calls;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+        this.rowsReturned = rowsReturned;
+        this.entitiesLoaded = entitiesLoaded;
+        this.flushes = flushes;
+        this.statements = statements;
+    }
+}
@@ -0,0 +1,22 @@
+package study.datajpa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// 쿼리 플랜 캐시 / prepared statement 통계
+@Data
+@AllArgsConstructor
+public class StatementCacheStatsDto {
+
+    private int statementCacheSize;   // datajpa.jdbc.statement-cache-size (드라이버 캐시)
+    private int queryPlanCacheSize;   // datajpa.jdbc.query-plan-cache-size
+    private long queryPlanCacheHits;
+    private long queryPlanCacheMisses;
+    private long preparedStatements;
+    private long closedStatements;
+
+    public double getQueryPlanCacheHitRate() {
+        long total = queryPlanCacheHits + queryPlanCacheMisses;
+        return total == 0 ? 0.0 : (double) queryPlanCacheHits / total;
+    }
+}
@@ -0,0 +1,12 @@
+package study.datajpa.dto;
+
+import lombok.Value;
+
+// 클래스 기반 Projection
+// 생성자 파라미터 이름으로 select 할 컬럼을 찾는다. (new 연산자를 쓰는 JPQL 로 바뀌어서 실행된다)
+@Value
+public class UsernameAgeDto {
+
+    String username;
+    int age;
+}
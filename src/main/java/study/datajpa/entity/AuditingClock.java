@@ -0,0 +1,13 @@
+package study.datajpa.entity;
+
+import java.time.LocalDateTime;
+
+// JpaBaseEntity 의 등록일, 수정일에 쓸 현재 시간
+// 구현체는 datajpa.auditing.clock 설정으로 고른다. (AuditingConfig 참고)
+// - system : 엔티티마다 LocalDateTime.now() (기존 방식)
+// - coarse : resolution 주기로 갱신되는 시간을 공유 (엔티티마다 시계를 읽지 않는다)
+// - flush  : 같은 flush 에 저장되는 엔티티들은 모두 같은 시간
+public interface AuditingClock {
+
+    LocalDateTime now();
+}
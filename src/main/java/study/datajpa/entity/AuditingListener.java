@@ -0,0 +1,26 @@
+package study.datajpa.entity;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+// JpaBaseEntity 의 등록일, 수정일을 채워주는 엔티티 리스너
+// 시간은 스프링 빈으로 주입받은 AuditingClock 에서 가져온다. (테스트에서는 Clock 빈을 바꿔서 시간을 고정할 수 있다)
+@Component
+@RequiredArgsConstructor
+public class AuditingListener {
+
+    private final AuditingClock auditingClock;
+
+    @PrePersist // Persist 전에 호출 (영속성 컨텍스트 추가 전에 호출)
+    public void prePersist(JpaBaseEntity entity) {
+        entity.created(auditingClock.now());
+    }
+
+    @PreUpdate // Update 전에 호출
+    public void preUpdate(JpaBaseEntity entity) {
+        entity.updated(auditingClock.now());
+    }
+}
@@ -0,0 +1,49 @@
+package study.datajpa.entity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 백그라운드 스레드가 resolution 주기로 현재 시간을 한 번 만들어두고, now() 는 그 값을 그대로 돌려준다.
+// LocalDateTime 은 불변이라 여러 엔티티가 같은 인스턴스를 공유해도 된다.
+// TODO 주의) 돌려주는 시간은 실제 시간보다 최대 resolution (+ 스케줄링 지연) 만큼 늦을 수 있다.
+public class CoarseAuditingClock implements AuditingClock, AutoCloseable {
+
+    private final Clock clock;
+    private final ScheduledExecutorService ticker;
+    private volatile LocalDateTime current;
+
+    public CoarseAuditingClock(Clock clock, Duration resolution) {
+        if (resolution.isNegative() || resolution.isZero()) {
+            throw new IllegalArgumentException("resolution 은 0 보다 커야 합니다: " + resolution);
+        }
+
+        this.clock = clock;
+        this.current = LocalDateTime.now(clock);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "auditing-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long period = resolution.toNanos();
+        ticker.scheduleAtFixedRate(this::tick, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public LocalDateTime now() {
+        return current;
+    }
+
+    void tick() {
+        current = LocalDateTime.now(clock);
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+}
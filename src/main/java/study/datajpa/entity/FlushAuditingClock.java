@@ -0,0 +1,66 @@
+package study.datajpa.entity;
+
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+// 처음 now() 를 호출할 때 시간을 한 번 읽고, flush 가 끝날 때까지 같은 값을 돌려준다.
+// persist() 한 엔티티들과 flush 시점에 수정된 엔티티들이 모두 같은 등록일 / 수정일을 갖게 된다.
+// 하이버네이트 flush 이벤트 리스너로 등록되어야 한다. (AuditingConfig 참고)
+// TODO 참고) 스레드 단위로 값을 들고 있으므로, 한 스레드에서 트랜잭션을 중첩하면 (REQUIRES_NEW) 안쪽 트랜잭션도 같은 시간을 쓸 수 있다.
+//  트랜잭션이 끝나면 (롤백 포함) 값을 버린다.
+public class FlushAuditingClock implements AuditingClock, FlushEventListener, AutoFlushEventListener {
+
+    private final Clock clock;
+    private final ThreadLocal<LocalDateTime> current = new ThreadLocal<>();
+
+    public FlushAuditingClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public LocalDateTime now() {
+        LocalDateTime now = current.get();
+        if (now == null) {
+            now = LocalDateTime.now(clock);
+            current.set(now);
+            resetAfterTransaction();
+        }
+        return now;
+    }
+
+    // 기본 flush 리스너 뒤에 붙어 있으므로 flush 가 끝난 뒤에 호출된다.
+    @Override
+    public void onFlush(FlushEvent event) {
+        reset();
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) {
+        if (event.isFlushRequired()) {
+            reset();
+        }
+    }
+
+    public void reset() {
+        current.remove();
+    }
+
+    private void resetAfterTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                reset();
+            }
+        });
+    }
+}
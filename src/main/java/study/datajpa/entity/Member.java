@@ -1,6 +1,8 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
@@ -18,21 +20,52 @@ import javax.persistence.*;
         name = "Member.findByUsername",
         query = "Select m From Member As m Where m.username = :username")
 
+// Keyset 페이징 (age 조건 + username, member_id 정렬) 을 인덱스만 타고 처리할 수 있도록 복합 인덱스를 건다.
+// (age, username) 조건은 이 인덱스의 앞부분으로 처리되므로 따로 만들지 않는다.
+// username 단독 조회 (findByUsername 등, UsernameIndex 의 id 조회) 용 인덱스
+@Table(indexes = {
+        @Index(name = "idx_member_age_username_id", columnList = "age, username, member_id"),
+        @Index(name = "idx_member_username", columnList = "username")
+})
+
+// 등록/삭제/나이 변경 시 Member count 캐시를 갱신한다.
+@EntityListeners(MemberCountListener.class)
+
+// 2차 캐시 : username 조회 쿼리 캐시가 id 목록을 돌려주면 엔티티는 여기서 꺼낸다.
+// TODO 참고) bulkAgePlus 같은 벌크 쿼리가 나가면 하이버네이트가 Member 캐시 영역과 쿼리 캐시를 통째로 무효화한다.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+
 // 등록일, 수정일 등 BaseEntity 를 사용하기 위해 상속받는다.
 public class Member extends JpaBaseEntity {
 
+    // allocationSize 만큼 id 를 한 번에 받아와서 메모리에서 나눠준다. (pooled optimizer)
+    // 기본 @GeneratedValue 는 insert 한 건마다 시퀀스를 한 번씩 호출한다.
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
 
     private String username;
     private int age;
 
+    // 낙관적 락 : update 할 때 where 절에 version 을 같이 걸고 1 증가시킨다.
+    // 그 사이 다른 트랜잭션이 먼저 수정했다면 update 건수가 0 이라 OptimisticLockException 이 발생한다. (OptimisticLockRetryExecutor 참고)
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id") // team_id 를 FK 값으로 설정, 매핑의 주인
     private Team team;
 
+    // 마지막으로 DB 와 맞춰진 나이 (엔티티 리스너에서 나이가 바뀌었는지 판단할 때 사용, 컬럼 X)
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int syncedAge;
+
     public Member(String username, int age, Team team) {
         this.username = username;
         this.age = age;
@@ -50,8 +83,21 @@ public class Member extends JpaBaseEntity {
 
     // 양방향 매핑에서 다(Member) 객체는, 일(Team) 을 변경할 수 있다.
     // Member 의 소속팀이 바껴야 하기 때문에 team 을 갈아끼워주고, 양방향 매핑이기 때문에 바뀔 팀 에서도 멤버를 추가한다.
+    // Team.members 는 mappedBy 쪽 (매핑의 주인 X) + EXTRA 지연 로딩이라, 아직 로딩 전이면 add() 가 컬렉션을 초기화하지 않는다. (O(1))
     public void changeTeam(Team team) {
         this.team = team;
         team.getMembers().add(this);
     }
+
+    int syncedAge() {
+        return syncedAge;
+    }
+
+    // 조회, 등록, 수정 쿼리가 나간 직후의 나이를 기억해둔다.
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    private void syncAge() {
+        this.syncedAge = age;
+    }
 }
@@ -0,0 +1,46 @@
+package study.datajpa.entity;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import study.datajpa.repository.MemberCountCache;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreRemove;
+
+// Member 의 등록/삭제/나이 변경을 count 캐시에 알려주는 엔티티 리스너
+// 스프링 부트가 하이버네이트에 SpringBeanContainer 를 등록해주기 때문에 리스너도 스프링 빈으로 주입받을 수 있다.
+// TODO 참고) 리스너의 콜백이 엔티티 자신의 콜백보다 먼저 호출된다.
+//  따라서 @PostUpdate 시점의 syncedAge() 는 아직 변경 전 나이다.
+@Component
+@RequiredArgsConstructor
+public class MemberCountListener {
+
+    private final MemberCountCache countCache;
+
+    @PrePersist
+    @PreRemove
+    public void beforeWrite(Member member) {
+        countCache.markDirty();
+    }
+
+    @PostPersist
+    public void afterPersist(Member member) {
+        countCache.memberAdded(member.getAge());
+    }
+
+    // DB 에 있던 나이 기준으로 빼준다.
+    @PostRemove
+    public void afterRemove(Member member) {
+        countCache.memberRemoved(member.syncedAge());
+    }
+
+    @PostUpdate
+    public void afterUpdate(Member member) {
+        if (member.syncedAge() != member.getAge()) {
+            countCache.ageChanged(member.syncedAge(), member.getAge());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package study.datajpa.entity;
+
+import lombok.RequiredArgsConstructor;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+// 호출할 때마다 시계를 읽고 LocalDateTime 을 새로 만든다. (기존 JpaBaseEntity 와 같은 동작)
+@RequiredArgsConstructor
+public class SystemAuditingClock implements AuditingClock {
+
+    private final Clock clock;
+
+    @Override
+    public LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+}
@@ -1,6 +1,11 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
+import org.hibernate.annotations.OptimisticLock;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -10,13 +15,31 @@ import java.util.List;
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
+// 읽기가 대부분인 엔티티라 2차 캐시에 올려둔다. (READ_WRITE : 수정 중인 엔트리는 잠가서 오래된 값을 안 읽게 한다)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Team extends JpaBaseEntity {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+    @SequenceGenerator(name = "team_seq_generator", sequenceName = "team_seq", allocationSize = 50)
     @Column(name = "team_id")
     private Long id;
     private String name;
 
+    // 낙관적 락 (Member.version 참고)
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
+    // 컬렉션 캐시에는 Member 의 id 목록만 들어간다. (Member 자체는 Member 엔티티 캐시에서 꺼낸다)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    // 팀에 Member 가 들어오고 나가는 것으로 Team 의 version 을 올리지 않는다. (팀 하나에 여러 명이 동시에 들어와도 충돌 X)
+    @OptimisticLock(excluded = true)
+    // EXTRA : 컬렉션 전체를 초기화하지 않고 size(), contains() 는 count / exists 쿼리로, add() 는 초기화될 때까지 큐에 쌓아둔다.
+    // 따라서 Member.changeTeam() 으로 팀에 한 명을 붙일 때 팀원 수천 명을 다 로딩하지 않는다.
+    // TODO 주의) for 문, stream 처럼 요소를 순회하면 그때는 전체가 로딩된다.
+    @LazyCollection(LazyCollectionOption.EXTRA)
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
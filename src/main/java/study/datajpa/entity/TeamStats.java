@@ -0,0 +1,38 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+// 팀별 집계 테이블 (팀원 수, 나이 합계)
+// count / avg 쿼리 대신 team_id 로 한 건만 조회하면 된다.
+// 값은 Member 등록/삭제/팀 변경/나이 변경 시점에 TeamStatsMaintainer 가 SQL 로 직접 더하고 빼준다. (엔티티로는 수정 X)
+@Entity
+@Immutable
+@Table(name = "team_stats")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStats {
+
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+
+    @Column(name = "member_count", nullable = false)
+    private long memberCount;
+
+    @Column(name = "age_sum", nullable = false)
+    private long ageSum;
+
+    public double getAverageAge() {
+        return memberCount == 0 ? 0.0 : (double) ageSum / memberCount;
+    }
+}
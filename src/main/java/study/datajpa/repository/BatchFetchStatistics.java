@@ -0,0 +1,73 @@
+package study.datajpa.repository;
+
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+import study.datajpa.dto.BatchFetchStatsDto;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+// 배치 페치 (datajpa.jdbc.batch-fetch-size) 로 N + 1 쿼리를 얼마나 아꼈는지 세는 용도 (hibernate.generate_statistics: true 필요)
+// Member.team 같은 프록시를 초기화하면 LOAD 이벤트가 발생한다. 배치로 이미 같이 가져온 엔티티라면 쿼리 없이 영속성 컨텍스트에서 꺼낸다.
+// 따라서 초기화 시점에 이미 영속성 컨텍스트에 있던 엔티티 수를 아낀 쿼리 수로 직접 센다.
+// TODO 주의) (프록시 초기화 횟수 - fetch 쿼리 횟수) 로 계산하면 2차 캐시에서 꺼낸 엔티티 (Team 등) 까지 아낀 쿼리로 세진다.
+//  2차 캐시에 있는 id 는 배치 IN 쿼리에서도 빠지고 초기화할 때 캐시에서 하나씩 꺼내므로, 영속성 컨텍스트 기준으로 세면 섞이지 않는다.
+// TODO 주의) 컬렉션은 아낀 쿼리 수를 계산하지 않는다.
+//  배치로 같이 초기화된 컬렉션은 나중에 접근해도 이벤트가 없고, 하이버네이트 통계의 로딩 수에는 fetch join / 즉시 로딩한 컬렉션까지 섞여 있다.
+//  그래서 지연 로딩으로 초기화를 시작한 횟수 (INIT_COLLECTION 이벤트) 와 통계 값을 그대로 보여준다.
+@Component
+public class BatchFetchStatistics {
+
+    private final Statistics statistics;
+    private final LongAdder lazyEntityLoads = new LongAdder();
+    private final LongAdder batchFetchedEntityLoads = new LongAdder();
+    private final LongAdder lazyCollectionInitializations = new LongAdder();
+
+    public BatchFetchStatistics(EntityManagerFactory emf) {
+        SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        this.statistics = sessionFactory.getStatistics();
+
+        // 기본 리스너보다 먼저 호출되도록 앞에 끼워넣는다.
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.prependListeners(EventType.LOAD, (LoadEventListener) (event, loadType) -> {
+            if (loadType == LoadEventListener.IMMEDIATE_LOAD) {
+                lazyEntityLoads.increment();
+                if (alreadyLoaded(event)) {
+                    batchFetchedEntityLoads.increment();
+                }
+            }
+        });
+        // 이미 초기화된 컬렉션이면 기본 리스너가 아무것도 하지 않는다.
+        registry.prependListeners(EventType.INIT_COLLECTION, (InitializeCollectionEventListener) event -> {
+            if (!event.getCollection().wasInitialized()) {
+                lazyCollectionInitializations.increment();
+            }
+        });
+    }
+
+    public BatchFetchStatsDto snapshot() {
+        return new BatchFetchStatsDto(
+                lazyEntityLoads.sum(),
+                batchFetchedEntityLoads.sum(),
+                statistics.getEntityFetchCount(),
+                lazyCollectionInitializations.sum(),
+                statistics.getCollectionFetchCount(),
+                statistics.getCollectionLoadCount());
+    }
+
+    // 기본 리스너보다 먼저 호출되므로 아직 로딩 전이다. 이미 영속성 컨텍스트에 있다면 쿼리 없이 꺼낸다.
+    private static boolean alreadyLoaded(LoadEvent event) {
+        EntityPersister persister = event.getSession().getFactory().getMetamodel()
+                .entityPersister(event.getEntityClassName());
+        EntityKey key = event.getSession().generateEntityKey(event.getEntityId(), persister);
+        return event.getSession().getPersistenceContextInternal().getEntity(key) != null;
+    }
+}
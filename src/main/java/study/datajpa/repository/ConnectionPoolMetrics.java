@@ -0,0 +1,72 @@
+package study.datajpa.repository;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.IMetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.stereotype.Component;
+import study.datajpa.dto.ConnectionPoolStatsDto;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// HikariCP 커넥션 풀 통계 (DataAccessConfig 에서 풀에 등록한다)
+// 현재 active / idle / 대기 스레드 수와, 커넥션을 얻기까지 기다린 시간 (p50 / p99), 타임아웃 수를 모은다.
+// 대기 시간이 길거나 타임아웃이 난다면 풀이 동시성에 비해 작은 것이고, idle 이 늘 많다면 큰 것이다.
+@Component
+public class ConnectionPoolMetrics implements IMetricsTrackerFactory {
+
+    private final LatencyHistogram acquireNanos = new LatencyHistogram();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder created = new LongAdder();
+
+    private volatile String poolName;
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                created.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquired.increment();
+                acquireNanos.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    // 풀이 아직 시작되지 않았다면 (커넥션을 한 번도 얻지 않았다면) 풀 상태는 0 으로 나온다.
+    public ConnectionPoolStatsDto snapshot() {
+        PoolStats stats = poolStats;
+        long acquiredCount = acquired.sum();
+        return new ConnectionPoolStatsDto(
+                poolName,
+                stats != null ? stats.getActiveConnections() : 0,
+                stats != null ? stats.getIdleConnections() : 0,
+                stats != null ? stats.getTotalConnections() : 0,
+                stats != null ? stats.getMaxConnections() : 0,
+                stats != null ? stats.getPendingThreads() : 0,
+                created.sum(),
+                acquiredCount,
+                timeouts.sum(),
+                acquireNanos.percentile(0.5) / 1_000,
+                acquireNanos.percentile(0.99) / 1_000,
+                acquiredCount == 0 ? 0.0 : (double) usageMillis.sum() / acquiredCount);
+    }
+}
@@ -0,0 +1,72 @@
+package study.datajpa.repository;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+
+import javax.persistence.EntityManager;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// ScrollableResults 를 한 행씩 꺼내 Stream 으로 흘려보내는 Spliterator
+// 다음 행을 꺼내기 직전에, 이전 행(이미 처리가 끝난 엔티티)을 영속성 컨텍스트에서 detach 한다.
+// 따라서 몇 건을 읽든 영속성 컨텍스트에는 지금 처리 중인 한 건만 남는다.
+// TODO 주의) sorted(), collect() 처럼 모든 요소를 모으는 연산을 붙이면 이미 detach 된 엔티티를 들고 있게 된다. (지연 로딩 X)
+class DetachingScrollSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+    private final ScrollableResults results;
+    private final EntityManager em;
+    private final Function<T, Object[]> toDetach; // 행 하나에서 같이 detach 할 엔티티들 (fetch join 된 연관 엔티티 등)
+    private T previous;
+
+    DetachingScrollSpliterator(ScrollableResults results, EntityManager em, Function<T, Object[]> toDetach) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.results = results;
+        this.em = em;
+        this.toDetach = toDetach;
+    }
+
+    // 전방 전용(FORWARD_ONLY) 커서 + readOnly (스냅샷 X) + fetchSize 만큼씩 드라이버가 가져온다.
+    // 반환된 Stream 은 try-with-resources 로 닫아줘야 커서가 닫힌다.
+    static <T> Stream<T> stream(Query<T> query, int fetchSize, EntityManager em, Function<T, Object[]> toDetach) {
+        ScrollableResults results = query
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+
+        return StreamSupport.stream(new DetachingScrollSpliterator<>(results, em, toDetach), false)
+                .onClose(results::close);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean tryAdvance(Consumer<? super T> action) {
+        detachPrevious();
+        if (!results.next()) {
+            return false;
+        }
+
+        previous = (T) results.get(0);
+        action.accept(previous);
+        return true;
+    }
+
+    private void detachPrevious() {
+        if (previous == null) {
+            return;
+        }
+
+        for (Object entity : toDetach.apply(previous)) {
+            if (entity != null && em.contains(entity)) {
+                em.detach(entity);
+            }
+        }
+        previous = null;
+    }
+}
@@ -0,0 +1,39 @@
+package study.datajpa.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Function;
+
+// 컬렉션 파라미터 (In 절) 를 chunkSize 개씩 잘라서 순서대로 실행하고 결과를 합친다.
+// 1. 파라미터가 수만 개여도 드라이버의 바인딩 파라미터 개수 제한에 걸리지 않는다.
+// 2. hibernate.query.in_clause_parameter_padding 을 켜두면 마지막 조각도 2 의 거듭제곱 크기로 맞춰지므로
+//    chunkSize 를 2 의 거듭제곱으로 두면 In 절 모양이 1, 2, 4, ... chunkSize 로 고정된다. (쿼리 플랜 캐시, statement 캐시 재사용)
+// TODO 참고) 같은 EntityManager 로 실행해야 하므로 병렬이 아니라 순서대로 실행한다.
+final class InClauseChunks {
+
+    private InClauseChunks() {
+    }
+
+    static <P, R> List<R> execute(Collection<P> params, int chunkSize, Function<List<P>, List<R>> query) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize 는 1 이상이어야 합니다: " + chunkSize);
+        }
+
+        // 중복 파라미터가 다른 조각에 들어가면 같은 행이 두 번 나오므로 먼저 중복을 없앤다.
+        List<P> distinct = new ArrayList<>(new LinkedHashSet<>(params));
+        if (distinct.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (distinct.size() <= chunkSize) {
+            return query.apply(distinct);
+        }
+
+        List<R> result = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            result.addAll(query.apply(distinct.subList(from, Math.min(from + chunkSize, distinct.size()))));
+        }
+        return result;
+    }
+}
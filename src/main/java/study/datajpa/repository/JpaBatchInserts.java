@@ -0,0 +1,47 @@
+package study.datajpa.repository;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+
+// 대량 등록용 헬퍼
+// persist 를 batchSize 만큼 모아서 flush() 하면 하이버네이트가 insert 를 JDBC batch 로 묶어서 보낸다.
+// flush() 이후 clear() 로 영속성 컨텍스트를 비워줘야 몇 백만 건을 넣어도 메모리가 batchSize 만큼만 쓰인다.
+// TODO 주의) clear() 는 호출한 쪽이 들고 있던 다른 영속 엔티티들까지 전부 준영속으로 만든다.
+//  따라서 대량 등록은 별도의 트랜잭션에서 하는 것이 좋다.
+final class JpaBatchInserts {
+
+    private JpaBatchInserts() {
+    }
+
+    static <T> long persistAll(EntityManager em, Iterable<T> entities, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize 는 1 이상이어야 합니다: " + batchSize);
+        }
+
+        // 호출 단위로 JDBC batch 크기를 맞춰준다. (application.yml 의 datajpa.jdbc.batch-size 는 기본값)
+        Session session = em.unwrap(Session.class);
+        Integer previousBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+
+        // 이전에 쌓여있던 변경분은 먼저 내보내고 시작한다.
+        em.flush();
+        em.clear();
+
+        long count = 0;
+        try {
+            for (T entity : entities) {
+                em.persist(entity);
+                if (++count % batchSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.flush();
+            em.clear();
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,82 @@
+package study.datajpa.repository;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.type.Type;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// 현재 스레드에서 하이버네이트가 한 일 (SQL 준비, 엔티티 로딩, flush) 을 세는 인터셉터
+// 세션 팩토리 하나에 인터셉터 하나를 공유하기 때문에 카운터는 ThreadLocal 에 둔다.
+// RepositoryMetricsAspect 가 레포지토리 메서드 호출 전후로 값을 비교해서 메서드별 통계를 만든다.
+@Component
+public class JpaWorkInterceptor extends EmptyInterceptor implements HibernatePropertiesCustomizer {
+
+    // 느린 쿼리 로그에 남길 SQL 최대 개수
+    private static final int MAX_CAPTURED_SQL = 10;
+
+    private static final ThreadLocal<Counters> COUNTERS = ThreadLocal.withInitial(Counters::new);
+
+    // 스프링 부트가 EntityManagerFactory 를 만들 때 이 인터셉터를 등록한다.
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.INTERCEPTOR, this);
+    }
+
+    // JDBC batch 로 묶인 insert 는 한 번만 준비되므로 1 로 센다.
+    @Override
+    public String onPrepareStatement(String sql) {
+        Counters counters = COUNTERS.get();
+        counters.statements++;
+        if (counters.capturing > 0 && counters.capturedSql.size() < MAX_CAPTURED_SQL) {
+            counters.capturedSql.add(sql);
+        }
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        COUNTERS.get().entitiesLoaded++;
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void postFlush(Iterator entities) {
+        COUNTERS.get().flushes++;
+    }
+
+    static Counters current() {
+        return COUNTERS.get();
+    }
+
+    static final class Counters {
+        long statements;
+        long entitiesLoaded;
+        long flushes;
+
+        // 레포지토리 호출이 중첩될 수 있으므로 깊이로 관리한다. (가장 바깥 호출이 끝날 때 비운다)
+        int capturing;
+        final List<String> capturedSql = new ArrayList<>();
+
+        void startCapture() {
+            if (capturing++ == 0) {
+                capturedSql.clear();
+            }
+        }
+
+        List<String> stopCapture() {
+            List<String> sql = new ArrayList<>(capturedSql);
+            if (--capturing == 0) {
+                capturedSql.clear();
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Keyset 페이징 결과
+// Slice 처럼 totalCount 쿼리 없이 "다음 페이지가 있는지" 만 알려주고, 다음 페이지는 nextToken 으로 요청한다.
+// offset 이 없기 때문에 몇 번째 페이지든 조회 비용이 같다.
+@Getter
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final String nextToken; // 다음 페이지가 없으면 null
+
+    public KeysetSlice(List<T> content, int size, String nextToken) {
+        this.content = Collections.unmodifiableList(content);
+        this.size = size;
+        this.nextToken = nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    public int getNumberOfElements() {
+        return content.size();
+    }
+
+    // Page.map() 과 같은 용도 (Entity -> DTO 변환)
+    public <U> KeysetSlice<U> map(Function<? super T, ? extends U> converter) {
+        List<U> converted = content.stream().map(converter).collect(Collectors.toList());
+        return new KeysetSlice<>(converted, size, nextToken);
+    }
+}
@@ -0,0 +1,99 @@
+package study.datajpa.repository;
+
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.VersionType;
+
+import javax.persistence.EntityManager;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// 벌크 쿼리가 DB 에 한 변경을 영속성 컨텍스트에 이미 올라와 있는 엔티티에만 똑같이 적용해준다.
+// clear() 로 영속성 컨텍스트를 날리지 않아도 되니, 앞에서 조회해 둔 엔티티를 다시 조회할 필요가 없다.
+// TODO 참고) 엔티티 값과 함께 하이버네이트가 들고 있는 스냅샷(loadedState)도 같이 바꿔준다.
+//  엔티티 값만 바꾸면 flush 시점에 변경 감지에 걸려서 같은 값으로 update 쿼리가 한 번 더 나간다.
+final class ManagedEntities {
+
+    private ManagedEntities() {
+    }
+
+    // 반드시 벌크 쿼리 전에 flush() 를 해둬야 한다. (스냅샷 = DB 값 이라는 전제)
+    // incrementVersion : "update versioned" 벌크 쿼리처럼 DB 의 @Version 이 1 올라갔다면 메모리의 version 도 맞춰준다.
+    //  안 맞추면 이후 이 엔티티를 수정할 때 version 이 달라서 OptimisticLockException 이 발생한다.
+    // 적용한 엔티티 수를 반환
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T> int apply(EntityManager em, Class<T> type, Predicate<T> matches,
+                         String property, Function<T, Object> newValue, boolean incrementVersion) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+
+        int applied = 0;
+        for (Map.Entry<Object, EntityEntry> managed : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            Object entity = managed.getKey();
+            EntityEntry entry = managed.getValue();
+            if (!type.isInstance(entity) || !isLoaded(entry)) {
+                continue;
+            }
+
+            T candidate = type.cast(entity);
+            if (!matches.test(candidate)) {
+                continue;
+            }
+
+            EntityPersister persister = entry.getPersister();
+            int index = persister.getEntityMetamodel().getPropertyIndex(property);
+            Object value = newValue.apply(candidate);
+
+            persister.setPropertyValue(entity, index, value);
+            Object[] loadedState = entry.getLoadedState();
+            if (loadedState != null) { // readOnly 로 조회한 엔티티는 스냅샷이 없다.
+                loadedState[index] = value;
+            }
+
+            if (incrementVersion && persister.isVersioned()) {
+                VersionType versionType = persister.getVersionType();
+                Object nextVersion = versionType.next(entry.getVersion(), session);
+                if (loadedState != null) {
+                    loadedState[persister.getVersionProperty()] = nextVersion;
+                }
+                // 엔티티의 version 필드와 EntityEntry 의 version 을 같이 바꿔준다.
+                entry.postUpdate(entity, loadedState, nextVersion);
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    // 아직 flush 되지 않은 type 엔티티 변경이 있는지 (persist / remove 예약, 또는 변경 감지에 걸릴 setXxx())
+    // 캐시가 DB 쿼리 대신 결과를 줄 때, 원래 쿼리라면 auto flush 로 보였을 변경을 놓치지 않기 위해 쓴다.
+    // TODO 참고) session.isDirty() 는 flush 이벤트를 흉내 내면서 @PreUpdate 같은 콜백까지 호출하므로,
+    //  여기서는 type 엔티티만 스냅샷(loadedState)과 직접 비교한다.
+    static boolean hasUnflushedChanges(EntityManager em, Class<?> type) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        if (session.getActionQueue().hasAnyQueuedActions()) {
+            return true;
+        }
+
+        for (Map.Entry<Object, EntityEntry> managed : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            Object entity = managed.getKey();
+            EntityEntry entry = managed.getValue();
+            // readOnly 엔티티는 스냅샷이 없고 flush 대상도 아니다.
+            if (!type.isInstance(entity) || entry.getStatus() != Status.MANAGED || entry.getLoadedState() == null) {
+                continue;
+            }
+
+            EntityPersister persister = entry.getPersister();
+            Object[] current = persister.getPropertyValues(entity);
+            if (persister.findDirty(current, entry.getLoadedState(), entity, session) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLoaded(EntityEntry entry) {
+        return entry.getStatus() == Status.MANAGED || entry.getStatus() == Status.READ_ONLY;
+    }
+}
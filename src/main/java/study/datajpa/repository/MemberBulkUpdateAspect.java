@@ -0,0 +1,46 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+// 벌크성 수정 쿼리는 엔티티 이벤트(@PreUpdate 등)를 타지 않고 DB 에 바로 때려넣는다.
+// 따라서 MemberRepository, MemberJpaRepository 의 bulkAgePlus(), bulkAgePlusInPlace() 를 감싸서 캐시, 페이지 캐시와 팀별 집계(team_stats)를 정리해준다.
+// TODO 참고) 팀별 집계는 벌크 쿼리와 같은 트랜잭션에서 갱신해야 같이 커밋 / 롤백된다.
+//  호출한 쪽에 트랜잭션이 없으면 여기서 트랜잭션을 열고 (있으면 참여) 벌크 쿼리는 그 안에서 실행된다.
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class MemberBulkUpdateAspect {
+
+    private final MemberCountCache countCache;
+    private final TeamStatsMaintainer teamStats;
+    private final PageSnapshotCache pageSnapshots;
+    private final PlatformTransactionManager transactionManager;
+
+    // TODO 주의) bulkAgePlusInPlace() 는 레포지토리 프록시와 MemberRepositoryImpl 빈 양쪽에서 걸리므로 구현체 쪽은 뺀다.
+    //  두 번 걸리면 팀별 나이 합계가 두 번 더해진다.
+    @Around("execution(int study.datajpa.repository.*.bulkAgePlus*(int)) && args(age)" +
+            " && !within(study.datajpa.repository.*Impl)")
+    public Object aroundBulkAgePlus(ProceedingJoinPoint joinPoint, int age) throws Throwable {
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        Object updated;
+        try {
+            // 벌크 쿼리가 나이를 바꾸기 전에 대상 팀원 수를 세야 한다.
+            teamStats.agesShiftedFrom(age);
+            updated = joinPoint.proceed();
+            countCache.agesShiftedFrom(age);
+            pageSnapshots.invalidateAfterCommit();
+        } catch (Throwable e) {
+            transactionManager.rollback(status);
+            throw e;
+        }
+        transactionManager.commit(status);
+        return updated;
+    }
+}
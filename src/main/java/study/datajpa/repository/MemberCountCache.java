@@ -0,0 +1,163 @@
+package study.datajpa.repository;
+
+import lombok.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Member count 쿼리 결과를 메모리에 들고 있다가, Member 등록/삭제/나이 변경 이벤트로 값을 직접 더하고 빼준다.
+// TODO 주의) 변경분은 커밋이 끝난 뒤에만 반영한다. (롤백되면 버린다)
+//  커밋 여부가 정해지지 않은 변경분이 하나라도 있는 동안에는 DB 에서 읽은 count 를 캐시에 넣지 않는다.
+//  그 count 에 변경분이 이미 들어있는지 알 수 없어서, 넣으면 커밋 후에 변경분이 한 번 더 더해질 수 있다. (ttl 이 없어서 clear() 전까지 남는다)
+//  Member 를 변경한 트랜잭션 안에서는 아직 반영 전이므로 캐시를 쓰지 않고 항상 DB 에 count 쿼리를 날린다.
+//  단, flush 전에 setAge() 만 한 상태는 감지하지 못하니 그 상태의 count 가 중요하다면 먼저 flush() 하자.
+@Component
+public class MemberCountCache {
+
+    private final ConcurrentMap<Key, Long> counts = new ConcurrentHashMap<>();
+
+    // 캐시가 바뀔 때마다 (변경분이 생길 때, 반영할 때) 증가. DB 조회 도중 값이 바뀌었다면 조회 결과를 캐시에 넣지 않는다.
+    private final AtomicLong version = new AtomicLong();
+
+    // 이벤트는 발생했지만 트랜잭션이 아직 끝나지 않은 변경분 수
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // select count(m) from Member m
+    public long count(LongSupplier loader) {
+        return get(Key.TOTAL, loader);
+    }
+
+    // select count(m) from Member m where m.age = :age
+    public long countByAge(int age, LongSupplier loader) {
+        return get(Key.byAge(age), loader);
+    }
+
+    public void memberAdded(int age) {
+        afterCommit(() -> {
+            add(Key.TOTAL, 1);
+            add(Key.byAge(age), 1);
+        });
+    }
+
+    public void memberRemoved(int age) {
+        afterCommit(() -> {
+            add(Key.TOTAL, -1);
+            add(Key.byAge(age), -1);
+        });
+    }
+
+    public void ageChanged(int oldAge, int newAge) {
+        afterCommit(() -> {
+            add(Key.byAge(oldAge), -1);
+            add(Key.byAge(newAge), 1);
+        });
+    }
+
+    // bulkAgePlus(age) : age 이상인 Member 들의 나이가 모두 바뀌므로 해당 구간의 age 별 count 는 버린다. (전체 count 는 그대로)
+    public void agesShiftedFrom(int age) {
+        afterCommit(() -> {
+            version.incrementAndGet();
+            counts.keySet().removeIf(key -> key.getAge() != null && key.getAge() >= age);
+        });
+    }
+
+    // 아직 flush 전이라 변경분은 모르지만, 이 트랜잭션에서 Member 가 바뀌고 있다는 것만 표시한다. (persist, remove 시점)
+    // 트랜잭션이 끝나면 풀어준다.
+    public void markDirty() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MemberCountCache.this);
+            }
+        });
+    }
+
+    public void clear() {
+        counts.clear();
+        version.incrementAndGet();
+    }
+
+    private long get(Key key, LongSupplier loader) {
+        if (isDirtyInCurrentTransaction()) {
+            return loader.getAsLong();
+        }
+
+        Long cached = counts.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // count 쿼리가 auto flush 를 일으키면 이 트랜잭션이 dirty 가 될 수 있으므로 조회 후에 한 번 더 확인한다.
+        // 조회 도중 변경분이 생기거나 반영됐다면 version 이 바뀌므로 조회 결과는 넣지 않는다.
+        long before = version.get();
+        long loaded = loader.getAsLong();
+        if (!isDirtyInCurrentTransaction() && inFlight.get() == 0 && version.get() == before) {
+            counts.putIfAbsent(key, loaded);
+            // 확인과 넣기 사이에 version 이 바뀌었다면 넣은 값을 믿을 수 없으니 뺀다.
+            // 이미 변경분이 더해져서 값이 달라졌다면 (넣은 값이 커밋 전 값이었으므로) 맞는 값이라 그대로 둔다.
+            if (version.get() != before) {
+                counts.remove(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    // 캐시에 없는 key 는 건드리지 않는다. (다음 조회 때 DB 에서 정확한 값을 가져온다)
+    private void add(Key key, long delta) {
+        counts.computeIfPresent(key, (k, count) -> count + delta);
+        version.incrementAndGet();
+    }
+
+    private boolean isDirtyInCurrentTransaction() {
+        return TransactionSynchronizationManager.hasResource(this);
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+
+        markDirty();
+        inFlight.incrementAndGet();
+        version.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        change.run();
+                    }
+                } finally {
+                    version.incrementAndGet();
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    // count 쿼리 + 파라미터 조합이 캐시의 key 가 된다.
+    @Value
+    static class Key {
+        static final Key TOTAL = new Key("Member.count", null);
+
+        String query;
+        Integer age;
+
+        static Key byAge(int age) {
+            return new Key("Member.countByAge", age);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package study.datajpa.repository;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import study.datajpa.entity.Member;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Keyset 페이징에서 "마지막으로 본 행" 을 나타내는 커서 (username, member_id)
+// 클라이언트에게는 내부 구조를 숨기기 위해 Base64 로 인코딩한 불투명(opaque) 토큰으로만 주고받는다.
+// TODO 주의) username 이 null 인 행도 있다. 문자열 "null" 로 인코딩하면 실제 "null" 이라는 username 과 구분되지 않으므로
+//  null 이면 구분자 없이 id 만 인코딩한다. (빈 문자열 username 은 ":id" 라서 구분된다)
+@Getter
+@EqualsAndHashCode
+@ToString
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class MemberCursor {
+
+    private static final char SEPARATOR = ':';
+
+    private final String username;
+    private final Long id;
+
+    public static MemberCursor of(Member member) {
+        return new MemberCursor(member.getUsername(), member.getId());
+    }
+
+    // username 에 ':' 가 들어있을 수 있으니 마지막 구분자 기준으로 id 를 잘라낸다.
+    public static MemberCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                return new MemberCursor(null, Long.valueOf(raw));
+            }
+            return new MemberCursor(raw.substring(0, separator), Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("잘못된 continuation token 입니다: " + token, e);
+        }
+    }
+
+    public String encode() {
+        String raw = username == null ? String.valueOf(id) : username + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
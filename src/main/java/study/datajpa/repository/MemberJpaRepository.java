@@ -1,5 +1,6 @@
 package study.datajpa.repository;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import study.datajpa.entity.Member;
 
@@ -14,6 +15,9 @@ public class MemberJpaRepository {
     @PersistenceContext
     private EntityManager em;
 
+    @Autowired
+    private MemberCountCache countCache;
+
     public Member save(Member member) {
         em.persist(member);
         return member;
@@ -39,9 +43,10 @@ public class MemberJpaRepository {
         em.remove(member);
     }
 
+    // count 쿼리는 캐시에 없을 때만 날아간다. (MemberCountCache 참고)
     public long count() {
-        return em.createQuery("select count(m) from Member m", Long.class)
-                .getSingleResult();
+        return countCache.count(() -> em.createQuery("select count(m) from Member m", Long.class)
+                .getSingleResult());
     }
 
     // 페이징 처리 (같은 age 를 갖는 Member 객체 데이터를 username 기준 내림차순으로 정렬)
@@ -55,15 +60,15 @@ public class MemberJpaRepository {
 
     // 현재 페이지에 몇 개의 데이터가 있는지 ?
     public long totalCount(int age) {
-        return em.createQuery("select count(m) from Member As m where m.age =: age", Long.class)
+        return countCache.countByAge(age, () -> em.createQuery("select count(m) from Member As m where m.age =: age", Long.class)
                 .setParameter("age", age)
-                .getSingleResult();
+                .getSingleResult());
     }
 
     // 벌크성 수정 쿼리
     // Parameter age 보다 큰 age 를 모두 + 1
     public int bulkAgePlus(int age) {
-        return em.createQuery("update Member m set m.age = m.age + 1 where m.age >= :age")
+        return em.createQuery("update versioned Member m set m.age = m.age + 1 where m.age >= :age")
                 .setParameter("age", age)
                 .executeUpdate();
     }
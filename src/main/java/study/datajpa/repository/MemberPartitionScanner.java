@@ -0,0 +1,196 @@
+package study.datajpa.repository;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+// 전체 Member 를 member_id 범위로 나눠서 파티션마다 별도 스레드, 별도 트랜잭션 (= 별도 EntityManager) 으로 읽는다.
+// 각 파티션은 streamAll() 처럼 커서로 읽으면서 mapper 를 적용하고, 결과를 CHUNK_SIZE 개씩 큐에 넣는다.
+// 호출한 스레드는 큐에서 꺼내면서 Collector 로 합친다. (큐가 꽉 차면 파티션 스레드가 기다리므로 메모리가 일정하다)
+// TODO 주의) 동시에 partitions 개의 DB 커넥션을 쓴다. 커넥션 풀 크기보다 크게 잡으면 커넥션을 기다리기만 한다.
+@Component
+public class MemberPartitionScanner {
+
+    private static final int CHUNK_SIZE = 256;
+    private static final int QUEUE_CHUNKS = 64;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTx;
+    private final AtomicInteger scanSequence = new AtomicInteger();
+
+    public MemberPartitionScanner(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public <R, A, T> T scan(int partitions, int fetchSize,
+                            Function<? super Member, ? extends R> mapper,
+                            Collector<? super R, A, T> collector) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions 는 1 이상이어야 합니다: " + partitions);
+        }
+
+        A container = collector.supplier().get();
+        List<long[]> ranges = readOnlyTx.execute(status -> idRanges(partitions));
+        if (ranges.isEmpty()) {
+            return collector.finisher().apply(container);
+        }
+
+        BlockingQueue<List<R>> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        AtomicBoolean failed = new AtomicBoolean();     // 파티션 하나가 실패하면 나머지도 멈춘다.
+        AtomicBoolean callerGone = new AtomicBoolean(); // 호출한 쪽이 더 이상 큐를 비우지 않는다.
+        List<R> end = new ArrayList<>(0);               // 파티션 종료 표시 (참조로 비교)
+
+        int scanId = scanSequence.incrementAndGet();
+        AtomicInteger threadSequence = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(ranges.size(), task -> {
+            Thread thread = new Thread(task, "member-scan-" + scanId + "-" + threadSequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long[] range : ranges) {
+                futures.add(workers.submit(() -> {
+                    try {
+                        readOnlyTx.executeWithoutResult(status ->
+                                scanRange(range[0], range[1], fetchSize, mapper, queue, failed, callerGone));
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        offer(queue, end, callerGone);
+                    }
+                }));
+            }
+
+            BiConsumer<A, ? super R> accumulator = collector.accumulator();
+            int finished = 0;
+            while (finished < ranges.size()) {
+                List<R> chunk = queue.take();
+                if (chunk == end) {
+                    finished++;
+                    continue;
+                }
+                for (R result : chunk) {
+                    accumulator.accept(container, result);
+                }
+            }
+
+            rethrowFailure(futures);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("파티션 스캔이 중단되었습니다.", e);
+        } finally {
+            callerGone.set(true);
+            workers.shutdownNow();
+        }
+
+        return collector.finisher().apply(container);
+    }
+
+    // 다른 파티션 때문에 취소된 파티션 (CancellationException) 말고, 처음 실패한 원인을 던진다.
+    private static void rethrowFailure(List<Future<?>> futures) throws InterruptedException {
+        Throwable failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null || failure instanceof CancellationException) {
+                    failure = e.getCause();
+                }
+            }
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("파티션 스캔에 실패했습니다.", failure);
+        }
+    }
+
+    // [min, max] 를 partitions 개의 연속된 id 구간으로 나눈다. (id 가 고르게 분포되어 있다는 전제, 시퀀스라 대체로 맞다)
+    private List<long[]> idRanges(int partitions) {
+        Object[] bounds = em.createQuery("select min(m.id), max(m.id) from Member m", Object[].class)
+                .getSingleResult();
+        List<long[]> ranges = new ArrayList<>();
+        if (bounds[0] == null) {
+            return ranges;
+        }
+
+        long min = (Long) bounds[0];
+        long max = (Long) bounds[1];
+        long span = max - min + 1;
+        long size = Math.max(1, (span + partitions - 1) / partitions);
+        for (long from = min; from <= max; from += size) {
+            ranges.add(new long[]{from, Math.min(max, from + size - 1)});
+        }
+        return ranges;
+    }
+
+    private <R> void scanRange(long from, long to, int fetchSize,
+                               Function<? super Member, ? extends R> mapper,
+                               BlockingQueue<List<R>> queue, AtomicBoolean failed, AtomicBoolean callerGone) {
+        org.hibernate.query.Query<Member> query = em.unwrap(Session.class)
+                .createQuery("select m from Member As m left join fetch m.team where m.id between :from and :to", Member.class)
+                .setParameter("from", from)
+                .setParameter("to", to);
+
+        try (Stream<Member> members = DetachingScrollSpliterator.stream(
+                query, fetchSize, em, member -> new Object[]{member, member.getTeam()})) {
+            List<R> chunk = new ArrayList<>(CHUNK_SIZE);
+            Iterator<Member> iterator = members.iterator();
+            while (iterator.hasNext()) {
+                if (failed.get() || callerGone.get()) {
+                    throw new CancellationException("member_id " + from + " ~ " + to + " 스캔 취소");
+                }
+                chunk.add(mapper.apply(iterator.next()));
+                if (chunk.size() == CHUNK_SIZE) {
+                    offer(queue, chunk, callerGone);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                offer(queue, chunk, callerGone);
+            }
+        }
+    }
+
+    // 큐가 꽉 차 있으면 기다리되, 호출한 쪽이 사라졌으면 포기한다.
+    private static <R> void offer(BlockingQueue<List<R>> queue, List<R> chunk, AtomicBoolean callerGone) {
+        try {
+            while (!queue.offer(chunk, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (callerGone.get()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
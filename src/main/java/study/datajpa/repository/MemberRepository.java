@@ -5,12 +5,15 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+import org.springframework.scheduling.annotation.Async;
+import study.datajpa.config.AsyncConfig;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
 import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 // MemberRepositoryCustom 또한 상속받는 걸로 수정
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom {
@@ -23,11 +26,14 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     // 사실 JpaRepository<Member, Long> 에서 Member 타입에 dot 을 하고 (Member. ~) NamedQuery 를 찾는다.
     // 따라서 19줄의 코드는 없어도 무방하고, 만약 NamedQuery 가 없다면, 쿼리 메서드를 찾아 실행하는 우선순위를 가진다.
     // 근데 실무에서는 NamedQuery 는 잘 안쓴다.
+    // 같은 username 으로 반복 조회가 많아서 쿼리 캐시를 건다. (결과 id 목록만 캐시, Member 는 2차 캐시에서 꺼냄)
     @Query(name = "Member.findByUsername")
+    @QueryHints(value = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Member> findByUsername(@Param("username") String username);
 
     // Repository 인터페이스에 쿼리 바로 정의하기
     // 실무에서 가장 많이 사용하는 방법
+    @ReadOnlyQuery
     @Query("Select m From Member As m Where m.username = :username And m.age = :age")
     List<Member> findUser(
             @Param("username") String username,
@@ -44,14 +50,12 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @Query("Select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) From Member m join m.team t")
     List<MemberDto> findMemberDto();
 
-    // 컬렉션을 In 절로 묶어서 조회하기
-    // Member Entity 에서 names 리스트의 String 타입 인자들을 In 절로 묶어서 조회한다.
-    // List<Member> result = memberRepository.findByNames(Arrays.asList("AAA", "BBB")); 이런 식으로 사용
-    @Query("select m from Member As m Where m.username in :names")
-    List<Member> findByNames(@Param("names") List<String> names);
+    // 컬렉션을 In 절로 묶어서 조회하는 findByNames() 는 In 절을 잘라서 실행하기 위해 MemberRepositoryCustom 으로 옮겼다.
 
-    List<Member> findListByUsername(String username); // 컬렉션
-    Member findMemberByUsername(String username); // 단건
+    @ReadOnlyQuery
+    List<Member> findListByUsername(String username); // 컬렉션 (조회 전용)
+    @QueryHints(value = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    Member findMemberByUsername(String username); // 단건 (쿼리 캐시)
     Optional<Member> findOptionalByUsername(String username); // 단건 Optional
 
     // ----------------------------------------
@@ -63,9 +67,16 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     //  만약 Member 와 Team 을 left join 한다고 가정하면, totalCount 를 구하는데 굳이 join 할 필요가 없다. 어짜피 결과는 똑같으니까
     //  따라서 countQuery 를 날릴 떄는 join 절이 없어도 되니까 join 절 없이 수동으로 짜주자. (성능 최적화)
     //  데이터가 많지 않다면 나눌 필요는 없고 성능이 안나오면 그때 고려하면 된다.
-    @Query(value = "select m from Member m left join m.team t",
-            countQuery = "select count(m.username) from Member m")
-    Page<Member> findByAge(int age, Pageable pageable);
+    // TODO 참고) 아래 countQuery 는 age 조건이 빠져 있어서 항상 전체 Member 수가 나왔다.
+    //  지금은 MemberRepositoryCustom 의 findByAge(int, Pageable) 로 옮겼다. (totalCount 는 age 조건을 넣고 MemberCountCache 에서 가져온다)
+//    @Query(value = "select m from Member m left join m.team t",
+//            countQuery = "select count(m.username) from Member m")
+//    Page<Member> findByAge(int age, Pageable pageable);
+
+    // 동적 Projection : 반환 타입을 호출하는 쪽에서 정한다.
+    // MemberSummary 처럼 인터페이스를 넘기면 필요한 컬럼만 select 하고, 엔티티는 만들지 않는다. (영속성 컨텍스트 X, 스냅샷 X)
+    // Member.class 를 넘기면 엔티티로 조회한다.
+    <T> List<T> findByAge(int age, Class<T> type);
 
     // Slice, List 는 쿼리 메서드 형태로 만들어줘야 동작한다. (메서드 이름에 이상있으면 동작 X)
 //    Slice<Member> findByAge(int age, Pageable pageable);
@@ -76,8 +87,9 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
 
     // 요놈이 있어야 executeUpdate 가 호출된다.
     // clearAutomatically 옵션으로 벌크 쿼리 이후 영속성 컨텍스트를 날려줘야 한다.
+    // versioned : 벌크 수정도 version 을 1 올려서, 먼저 읽어둔 엔티티로 덮어쓰는 일(lost update)이 없게 한다.
     @Modifying(clearAutomatically = true)
-    @Query("update Member m set m.age = m.age + 1 where m.age >= :age")
+    @Query("update versioned Member m set m.age = m.age + 1 where m.age >= :age")
     int bulkAgePlus(@Param("age") int age);
 
     // Member 객체와 연관관계가 있는 Team 을 fetch !
@@ -87,7 +99,9 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     // Member 와 Team 을 한 번에 조회하고 싶다! JPQL 을 짜기는 귀찮다.
     // 그럴 땐 JpaRepository 인터페이스의 기본 메서드를 Override 해서 사용하면 된다.
     // attributePaths 속성으로 객체의 JoinColumn 객체 이름을 적어준다.
+    // 전체 조회는 화면 출력, 내보내기 용도라 조회 전용으로 가져온다. (@ReadOnlyQuery 참고)
     @Override
+    @ReadOnlyQuery
     @EntityGraph(attributePaths = {"team"})
     List<Member> findAll();
 
@@ -96,6 +110,25 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @Query("select m from Member As m")
     List<Member> findMemberEntityGraph();
 
+    // @ReadOnlyQuery 는 아래 @QueryHints 를 줄여놓은 것
     @QueryHints(value = @QueryHint(name = "org.hibernate.readOnly", value = "true"))
     Member findReadOnlyByUsername(String username);
+
+    // ----------------------------------------
+
+    // 비동기 조회 : 호출한 스레드는 바로 CompletableFuture 를 받고, 쿼리는 repositoryExecutor 에서 실행된다.
+    // 작업마다 executor 스레드에서 새 트랜잭션 (readOnly) 을 열고 끝나면 닫는다. 따라서 결과 엔티티는 준영속 상태 (지연 로딩 X)
+    // 예) 서로 관계없는 조회 두 개를 동시에 날리고 thenCombine() 으로 합치기
+    @Async(AsyncConfig.REPOSITORY_EXECUTOR)
+    CompletableFuture<List<Member>> findAsyncListByUsername(String username);
+
+    @Async(AsyncConfig.REPOSITORY_EXECUTOR)
+    CompletableFuture<Member> findAsyncMemberByUsername(String username); // 없으면 null 로 완료
+
+    @Async(AsyncConfig.REPOSITORY_EXECUTOR)
+    @Query("Select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) From Member m join m.team t")
+    CompletableFuture<List<MemberDto>> findMemberDtoAsync();
+
+    @Async(AsyncConfig.REPOSITORY_EXECUTOR)
+    CompletableFuture<Long> countAsyncByAge(int age);
 }
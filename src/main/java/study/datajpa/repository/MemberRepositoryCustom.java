@@ -1,10 +1,61 @@
 package study.datajpa.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
 
 public interface MemberRepositoryCustom {
 
     List<Member> findMemberCustom();
+
+    // 컬렉션을 In 절로 묶어서 조회하기
+    // Member Entity 에서 names 리스트의 String 타입 인자들을 In 절로 묶어서 조회한다.
+    // List<Member> result = memberRepository.findByNames(Arrays.asList("AAA", "BBB")); 이런 식으로 사용
+    // names 가 많으면 In 절을 잘라서 여러 번 조회한 뒤 합친다. (조회 전용)
+    List<Member> findByNames(List<String> names);
+
+    // Keyset(seek) 페이징 : offset 대신 마지막으로 본 (username, member_id) 다음부터 조회한다.
+    // continuationToken 이 null 이면 첫 페이지
+    KeysetSlice<Member> findByAgeKeyset(int age, String continuationToken, int size);
+
+    // 나이로 Page 조회. totalCount 는 MemberCountCache 에서 가져온다. (age 조건도 count 에 반영)
+    Page<Member> findByAge(int age, Pageable pageable);
+
+    // 대량 등록 : batchSize 개씩 JDBC batch insert 후 영속성 컨텍스트를 비운다. 등록한 건수를 반환
+    long saveAllBatched(Iterable<Member> members, int batchSize);
+
+    // 전체 Member (+ team) 를 List 로 모으지 않고 한 건씩 흘려보낸다. 처리가 끝난 엔티티는 detach 된다.
+    // DB 커서를 열어두기 때문에 반드시 트랜잭션 안에서 호출하고, try-with-resources 로 닫아줘야 한다.
+    Stream<Member> streamAll(int fetchSize);
+
+    // streamAll() 의 콜백 버전. 트랜잭션 관리와 커서 정리를 알아서 해준다. 처리한 건수를 반환
+    long forEachMember(int fetchSize, Consumer<Member> action);
+
+    // findMemberDto() 와 같은 결과 (팀이 있는 Member 만) 를 JDBC 로 바로 읽는다.
+    // 행마다 Object[] 튜플, 리플렉션 없이 MemberDto 생성자를 바로 호출한다. (ProjectionMaterializer 참고)
+    List<MemberDto> findMemberDtoDirect();
+
+    // 전체 Member 를 MemberDto 로 한 건씩 흘려보낸다. (내보내기 용도, 팀이 없는 Member 도 포함)
+    // DTO 라 영속성 컨텍스트에 쌓이지 않으므로 몇 건이든 메모리 사용량이 일정하다. 처리한 건수를 반환
+    long forEachMemberDto(int fetchSize, Consumer<MemberDto> action);
+
+    // 전체 Member 를 member_id 범위로 partitions 개로 나눠서 병렬로 읽는다. (파티션마다 별도 스레드, 트랜잭션, EntityManager)
+    // mapper 는 파티션 스레드에서 실행되고 (엔티티가 영속 상태라 지연 로딩 가능), 결과는 호출한 스레드에서 collector 로 합친다.
+    // 예) Map<Integer, Long> countByAge = memberRepository.scanPartitioned(4, Member::getAge, Collectors.groupingBy(age -> age, Collectors.counting()));
+    <R, T> T scanPartitioned(int partitions, Function<? super Member, ? extends R> mapper, Collector<? super R, ?, T> collector);
+
+    // id 로 Member 를 조회해서 change 를 적용한다. 낙관적 락 충돌이 나면 새 트랜잭션에서 조회부터 다시 한다.
+    // (OptimisticLockRetryExecutor 참고, change 는 여러 번 실행될 수 있으니 부수 효과가 없어야 한다)
+    Member updateWithRetry(Long id, Consumer<Member> change);
+
+    // bulkAgePlus() 와 같은 update 쿼리지만 영속성 컨텍스트를 clear() 하지 않는다.
+    // 대신 이미 영속 상태인 Member 중 조건에 맞는 엔티티에만 같은 변경(age + 1)을 메모리에서 적용한다.
+    int bulkAgePlusInPlace(int age);
 }
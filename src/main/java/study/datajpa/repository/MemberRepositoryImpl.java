@@ -1,10 +1,31 @@
 package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.TypedQuery;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
 
 @RequiredArgsConstructor
 // 구현체의 클래스 이름은 인터페이스가 상속되고 있는 인터페이스 이름 + Impl 로 붙여줘야 한다.
@@ -12,11 +33,204 @@ import java.util.List;
 // MemberRepository + Impl 로 구현체 이름을 지정해야 한다.
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+    // In 절 하나에 바인딩할 최대 파라미터 수 (2 의 거듭제곱, InClauseChunks 참고)
+    private static final int IN_CLAUSE_CHUNK_SIZE = 512;
+
+    // 파티션 스캔에서 드라이버가 한 번에 가져올 행 수
+    private static final int PARTITION_SCAN_FETCH_SIZE = 500;
+
+    // findMemberDto() 의 JPQL 과 같은 SQL (컬럼 순서 = MemberDto 생성자 파라미터 순서)
+    private static final String MEMBER_DTO_SQL =
+            "select m.member_id, m.username, t.name from member m join team t on t.team_id = m.team_id";
+    private static final ProjectionMaterializer<MemberDto> MEMBER_DTO =
+            ProjectionMaterializer.of(MemberDto.class, Long.class, String.class, String.class);
+
     private final EntityManager em;
+    private final MemberCountCache countCache;
+    private final MemberPartitionScanner partitionScanner;
+    private final OptimisticLockRetryExecutor retryExecutor;
 
+    // 조회 전용 (@ReadOnlyQuery 와 같은 힌트)
     @Override
     public List<Member> findMemberCustom() {
         return em.createQuery("select m from Member As m")
+                .setHint(QueryHints.READ_ONLY, true)
+                .getResultList();
+    }
+
+    @Override
+    public List<Member> findByNames(List<String> names) {
+        return InClauseChunks.execute(names, IN_CLAUSE_CHUNK_SIZE, chunk ->
+                em.createQuery("select m from Member As m Where m.username in :names", Member.class)
+                        .setParameter("names", chunk)
+                        .setHint(QueryHints.READ_ONLY, true)
+                        .getResultList());
+    }
+
+    // findByPage() 와 같은 username 내림차순이지만, username 이 같을 때 순서가 흔들리지 않도록 id 까지 정렬 조건에 넣는다.
+    // username 이 null 인 행은 맨 뒤 (nulls last) 에 두고, 커서 조건에서도 따로 처리한다. (null 은 < / = 비교에 걸리지 않음)
+    // size + 1 개를 가져와서 다음 페이지가 있는지 판단한다. (Slice 와 같은 방식, count 쿼리 X)
+    @Override
+    public KeysetSlice<Member> findByAgeKeyset(int age, String continuationToken, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size 는 1 이상이어야 합니다: " + size);
+        }
+
+        TypedQuery<Member> query;
+        if (continuationToken == null) {
+            query = em.createQuery(
+                    "select m from Member As m where m.age = :age" +
+                            " order by m.username desc nulls last, m.id desc", Member.class);
+        } else {
+            MemberCursor cursor = MemberCursor.decode(continuationToken);
+            if (cursor.getUsername() == null) {
+                // 이미 null 구간이면 남은 null 행만 id 로 이어서 본다.
+                query = em.createQuery(
+                        "select m from Member As m where m.age = :age" +
+                                " and m.username is null and m.id < :id" +
+                                " order by m.username desc nulls last, m.id desc", Member.class);
+            } else {
+                query = em.createQuery(
+                        "select m from Member As m where m.age = :age" +
+                                " and (m.username < :username or (m.username = :username and m.id < :id)" +
+                                " or m.username is null)" +
+                                " order by m.username desc nulls last, m.id desc", Member.class)
+                        .setParameter("username", cursor.getUsername());
+            }
+            query.setParameter("id", cursor.getId());
+        }
+
+        List<Member> members = query
+                .setParameter("age", age)
+                .setMaxResults(size + 1)
                 .getResultList();
+
+        if (members.size() <= size) {
+            return new KeysetSlice<>(members, size, null);
+        }
+
+        List<Member> content = members.subList(0, size);
+        String nextToken = MemberCursor.of(content.get(size - 1)).encode();
+        return new KeysetSlice<>(content, size, nextToken);
+    }
+
+    // PageableExecutionUtils 는 마지막 페이지처럼 content 만으로 total 을 알 수 있으면 count 자체를 생략한다.
+    @Override
+    public Page<Member> findByAge(int age, Pageable pageable) {
+        String jpql = QueryUtils.applySorting("select m from Member m where m.age = :age", pageable.getSort(), "m");
+        TypedQuery<Member> query = em.createQuery(jpql, Member.class)
+                .setParameter("age", age);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset())
+                    .setMaxResults(pageable.getPageSize());
+        }
+        List<Member> content = query.getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> countCache.countByAge(age, () -> em.createQuery(
+                                "select count(m) from Member m where m.age = :age", Long.class)
+                        .setParameter("age", age)
+                        .getSingleResult()));
+    }
+
+    @Override
+    @Transactional
+    public long saveAllBatched(Iterable<Member> members, int batchSize) {
+        return JpaBatchInserts.persistAll(em, members, batchSize);
+    }
+
+    // findAll() 의 @EntityGraph 처럼 team 도 fetch join 하고, 처리가 끝나면 member, team 둘 다 detach 한다. (DetachingScrollSpliterator 참고)
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Stream<Member> streamAll(int fetchSize) {
+        return DetachingScrollSpliterator.stream(
+                em.unwrap(Session.class).createQuery("select m from Member As m left join fetch m.team", Member.class),
+                fetchSize, em, member -> new Object[]{member, member.getTeam()});
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long forEachMember(int fetchSize, Consumer<Member> action) {
+        long count = 0;
+        try (Stream<Member> members = streamAll(fetchSize)) {
+            for (Member member : (Iterable<Member>) members::iterator) {
+                action.accept(member);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 하이버네이트를 거치지 않으므로 JPQL 처럼 auto flush 가 일어나지 않는다. 조회 전에 직접 flush 해준다. (조회 전용 트랜잭션이면 생략)
+    @Override
+    @Transactional(readOnly = true)
+    public List<MemberDto> findMemberDtoDirect() {
+        Session session = em.unwrap(Session.class);
+        if (session.getHibernateFlushMode() != FlushMode.MANUAL) {
+            session.flush();
+        }
+
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(MEMBER_DTO_SQL);
+                 ResultSet rs = statement.executeQuery()) {
+                List<MemberDto> result = new ArrayList<>();
+                while (rs.next()) {
+                    result.add(MEMBER_DTO.materialize(rs));
+                }
+                return result;
+            }
+        });
+    }
+
+    // 커서를 앞으로만 읽고 (FORWARD_ONLY), 드라이버는 fetchSize 만큼씩 가져온다.
+    @Override
+    @Transactional(readOnly = true)
+    public long forEachMemberDto(int fetchSize, Consumer<MemberDto> action) {
+        long count = 0;
+        try (ScrollableResults rows = em.unwrap(Session.class)
+                .createQuery("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name)" +
+                        " from Member m left join m.team t order by m.id", MemberDto.class)
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                action.accept((MemberDto) rows.get(0));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Member updateWithRetry(Long id, Consumer<Member> change) {
+        return retryExecutor.execute(() -> {
+            Member member = em.find(Member.class, id);
+            if (member == null) {
+                throw new EntityNotFoundException("Member 가 없습니다: " + id);
+            }
+            change.accept(member);
+            return member;
+        });
+    }
+
+    // 파티션마다 새 트랜잭션을 열기 때문에 여기서는 트랜잭션을 걸지 않는다. (MemberPartitionScanner 참고)
+    @Override
+    public <R, T> T scanPartitioned(int partitions, Function<? super Member, ? extends R> mapper,
+                                    Collector<? super R, ?, T> collector) {
+        return partitionScanner.scan(partitions, PARTITION_SCAN_FETCH_SIZE, mapper, collector);
+    }
+
+    @Override
+    @Transactional
+    public int bulkAgePlusInPlace(int age) {
+        // 쌓여있는 변경분을 먼저 DB 에 보내야 update 쿼리 조건과 메모리의 값이 일치한다.
+        em.flush();
+
+        int updated = em.createQuery("update versioned Member m set m.age = m.age + 1 where m.age >= :age")
+                .setParameter("age", age)
+                .executeUpdate();
+
+        ManagedEntities.apply(em, Member.class, member -> member.getAge() >= age,
+                "age", member -> member.getAge() + 1, true);
+        return updated;
     }
 }
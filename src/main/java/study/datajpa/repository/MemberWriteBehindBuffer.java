@@ -0,0 +1,221 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.entity.Member;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Member 의 나이, username 수정을 바로 DB 에 쓰지 않고 메모리에 모아뒀다가 한 번에 쓴다. (write-behind)
+// 같은 Member 에 대한 수정은 Member id 별로 합쳐져서 (필드별 마지막 값) flush 한 번에 update 한 번이 된다.
+// flush 는 batch-size 만큼 쌓이거나 flush-interval 마다 백그라운드 스레드에서, 또는 flushNow() 를 호출하면 일어난다.
+// flush 는 새 트랜잭션에서 엔티티를 조회해 값을 바꾸고 변경 감지로 update 한다. (JDBC batch, 버전 체크, 엔티티 리스너 모두 그대로 동작)
+// 버전 충돌이 나면 OptimisticLockRetryExecutor 가 다시 조회해서 적용한다. (마지막에 쓴 값이 이긴다)
+//
+// 보장하는 것
+// - 같은 Member 의 수정은 호출한 순서대로 반영된다. (flush 는 한 번에 하나씩만 실행)
+// - flushNow() 가 정상 반환되면, 그 전에 호출한 수정은 모두 커밋되어 있다. (호출 이후에 들어온 수정은 기다리지 않는다)
+// - 애플리케이션이 정상 종료되면 남은 수정을 flush 한다.
+// 보장하지 않는 것
+// - 내구성 : flush 전에 프로세스가 죽으면 쌓여있던 수정은 사라진다.
+// - 서로 다른 Member 사이의 순서, 수정 직후 조회 (flush 전에는 조회해도 이전 값이 보인다)
+// TODO 참고) datajpa.write-behind.enabled 가 false 면 (기본값) 모으지 않고 바로 쓴다.
+//  호출한 쪽에 트랜잭션이 있으면 거기에 참여한다. (같이 커밋 / 롤백되고, 이미 조회해둔 Member 에 바로 반영)
+//  새 트랜잭션으로 쓰면 호출한 쪽이 롤백해도 남고, 호출한 쪽이 들고 있는 Member 의 version 이 낡아서 그쪽 flush 가 버전 충돌이 난다.
+//  트랜잭션이 없으면 새 트랜잭션에서 쓴다.
+@Slf4j
+@Component
+public class MemberWriteBehindBuffer {
+
+    private final EntityManager em;
+    private final OptimisticLockRetryExecutor retryExecutor;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxPending;
+
+    private final ConcurrentMap<Long, PendingUpdate> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+
+    public MemberWriteBehindBuffer(EntityManager em,
+                                   OptimisticLockRetryExecutor retryExecutor,
+                                   @Value("${datajpa.write-behind.enabled:false}") boolean enabled,
+                                   @Value("${datajpa.write-behind.batch-size:50}") int batchSize,
+                                   @Value("${datajpa.write-behind.max-pending:10000}") int maxPending,
+                                   @Value("${datajpa.write-behind.flush-interval:200ms}") Duration flushInterval) {
+        if (batchSize < 1 || maxPending < batchSize) {
+            throw new IllegalArgumentException("datajpa.write-behind 설정은 1 <= batch-size <= max-pending 이어야 합니다.");
+        }
+        this.em = em;
+        this.retryExecutor = retryExecutor;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+
+        if (enabled) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "member-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = flushInterval.toMillis();
+            flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    public void updateAge(Long id, int age) {
+        submit(id, new PendingUpdate(age, null));
+    }
+
+    public void updateUsername(Long id, String username) {
+        submit(id, new PendingUpdate(null, username));
+    }
+
+    // 지금까지 쌓인 수정을 모두 커밋하고 반환한다. (이미 다른 스레드가 flush 중이면 끝날 때까지 기다린다)
+    // 호출 시점에 쌓여 있던 Member 만 쓴다. 다른 스레드가 계속 수정을 넣는 동안 버퍼가 빌 때까지 기다리면 끝나지 않을 수 있다.
+    public void flushNow() {
+        flushLock.lock();
+        try {
+            List<Long> ids = new ArrayList<>(pending.keySet());
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                flushBatch(ids.subList(from, Math.min(ids.size(), from + batchSize)));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flushNow();
+    }
+
+    private void submit(Long id, PendingUpdate update) {
+        if (!enabled) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                applyInCurrentTransaction(id, update);
+            } else {
+                retryExecutor.executeWithoutResult(() -> apply(Map.of(id, update)));
+            }
+            return;
+        }
+
+        pending.merge(id, update, PendingUpdate::then);
+
+        // 버퍼가 꽉 차면 호출한 스레드가 직접 비운다. (백프레셔)
+        if (pending.size() >= maxPending) {
+            flushNow();
+        } else if (pending.size() >= batchSize) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flushNow();
+        } catch (RuntimeException e) {
+            log.error("Member write-behind flush 실패 (다음 flush 때 다시 시도합니다)", e);
+        }
+    }
+
+    // flushLock 을 잡은 상태에서만 호출한다. ids (batchSize 개 이하) 의 수정을 한 트랜잭션으로 쓴다.
+    private void flushBatch(List<Long> ids) {
+        Map<Long, PendingUpdate> batch = new LinkedHashMap<>();
+        for (Long id : ids) {
+            PendingUpdate update = pending.remove(id);
+            if (update != null) {
+                batch.put(id, update);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            retryExecutor.executeWithoutResult(() -> apply(batch));
+        } catch (RuntimeException e) {
+            // 실패한 수정은 되돌려 넣는다. 그 사이 들어온 수정이 있으면 그 값이 이긴다.
+            batch.forEach((id, update) -> pending.merge(id, update, (newer, failed) -> failed.then(newer)));
+            throw e;
+        }
+    }
+
+    private void apply(Map<Long, PendingUpdate> batch) {
+        Session session = em.unwrap(Session.class);
+        session.setJdbcBatchSize(batchSize);
+
+        List<Long> ids = new ArrayList<>(batch.keySet());
+        List<Member> members = session.byMultipleIds(Member.class)
+                .withBatchSize(batchSize)
+                .multiLoad(ids);
+        for (int i = 0; i < ids.size(); i++) {
+            Member member = members.get(i);
+            if (member == null) {
+                log.warn("write-behind 대상 Member 가 없습니다. 수정을 버립니다: id={}", ids.get(i));
+                continue;
+            }
+            batch.get(ids.get(i)).applyTo(member);
+        }
+        em.flush();
+    }
+
+    // 버퍼를 쓰지 않을 때 : 호출한 쪽 영속성 컨텍스트의 Member 에 바로 반영하고, flush 는 호출한 쪽 커밋에 맡긴다.
+    private void applyInCurrentTransaction(Long id, PendingUpdate update) {
+        Member member = em.find(Member.class, id);
+        if (member == null) {
+            log.warn("수정할 Member 가 없습니다. 수정을 버립니다: id={}", id);
+            return;
+        }
+        update.applyTo(member);
+    }
+
+    // 필드별로 마지막 값만 남긴다. null 은 "수정 안 함"
+    private static final class PendingUpdate {
+        private final Integer age;
+        private final String username;
+
+        PendingUpdate(Integer age, String username) {
+            this.age = age;
+            this.username = username;
+        }
+
+        PendingUpdate then(PendingUpdate next) {
+            return new PendingUpdate(
+                    next.age != null ? next.age : age,
+                    next.username != null ? next.username : username);
+        }
+
+        void applyTo(Member member) {
+            if (age != null) {
+                member.setAge(age);
+            }
+            if (username != null) {
+                member.setUsername(username);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.OptimisticLockStatsDto;
+
+import javax.persistence.OptimisticLockException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// 낙관적 락 충돌 시 트랜잭션을 통째로 다시 실행해주는 executor
+// 충돌은 flush 나 커밋 시점에 나므로, 재시도는 "조회 -> 수정 -> 커밋" 전체를 새 트랜잭션 (새 영속성 컨텍스트) 에서 다시 해야 한다.
+// 따라서 작업은 항상 REQUIRES_NEW 트랜잭션에서 실행된다. (호출한 쪽의 트랜잭션은 잠시 보류)
+// 재시도 간격은 initial-backoff 부터 2 배씩 늘어나고 (max-backoff 까지), 동시에 재시도가 몰리지 않도록 0 ~ 간격 사이의 랜덤 값을 쓴다.
+@Slf4j
+@Component
+public class OptimisticLockRetryExecutor {
+
+    private final TransactionTemplate tx;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public OptimisticLockRetryExecutor(PlatformTransactionManager transactionManager,
+                                       @Value("${datajpa.retry.max-attempts:5}") int maxAttempts,
+                                       @Value("${datajpa.retry.initial-backoff:10ms}") Duration initialBackoff,
+                                       @Value("${datajpa.retry.max-backoff:500ms}") Duration maxBackoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("datajpa.retry.max-attempts 는 1 이상이어야 합니다: " + maxAttempts);
+        }
+        this.tx = new TransactionTemplate(transactionManager);
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        executions.increment();
+        long backoff = initialBackoffMillis;
+
+        for (int attempt = 1; ; attempt++) {
+            attempts.increment();
+            try {
+                T result = tx.execute(status -> work.get());
+                if (attempt > 1) {
+                    recovered.increment();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                if (!isOptimisticLockFailure(e)) {
+                    throw e;
+                }
+
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw e;
+                }
+
+                log.debug("낙관적 락 충돌, {}번째 재시도 ({}ms 후)", attempt, backoff);
+                sleep(ThreadLocalRandom.current().nextLong(backoff + 1));
+                backoff = Math.min(maxBackoffMillis, backoff * 2);
+            }
+        }
+    }
+
+    public void executeWithoutResult(Runnable work) {
+        execute(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public OptimisticLockStatsDto snapshot() {
+        return new OptimisticLockStatsDto(executions.sum(), attempts.sum(), conflicts.sum(), recovered.sum(), exhausted.sum());
+    }
+
+    // flush 중에 나면 OptimisticLockException (JPA), 커밋 중에 나면 스프링이 변환한 OptimisticLockingFailureException
+    private static boolean isOptimisticLockFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException || cause instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("재시도 대기 중 중단되었습니다.", e);
+        }
+    }
+}
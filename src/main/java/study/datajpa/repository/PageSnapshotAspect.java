@@ -0,0 +1,56 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import java.util.Collections;
+
+// MemberRepository 의 findByAge(age, pageable) 결과를 PageSnapshotCache 에 넣고 꺼낸다.
+// 같은 페이지를 다시 요청하면 content, count 쿼리 없이 캐시의 id 목록으로 Page 를 다시 만든다.
+// datajpa.page-cache.enabled 가 false 면 항상 원래 쿼리를 실행한다. (페이지 깊이별 쿼리 비용을 재는 벤치마크 등)
+@Aspect
+@Component
+public class PageSnapshotAspect {
+
+    private final PageSnapshotCache pageSnapshots;
+    private final TransactionTemplate readOnlyTx;
+    private final boolean enabled;
+
+    public PageSnapshotAspect(PageSnapshotCache pageSnapshots, PlatformTransactionManager transactionManager,
+                              @Value("${datajpa.page-cache.enabled:true}") boolean enabled) {
+        this.pageSnapshots = pageSnapshots;
+        this.enabled = enabled;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true); // 호출한 쪽에 트랜잭션이 있으면 거기에 참여한다.
+    }
+
+    @Around("execution(org.springframework.data.domain.Page study.datajpa.repository.MemberRepository.findByAge(int, org.springframework.data.domain.Pageable))" +
+            " && args(age, pageable)")
+    @SuppressWarnings("unchecked")
+    public Object cachePage(ProceedingJoinPoint joinPoint, int age, Pageable pageable) throws Throwable {
+        if (!enabled || pageable.isUnpaged()) {
+            return joinPoint.proceed();
+        }
+
+        PageSnapshotCache.Key key = new PageSnapshotCache.Key(
+                joinPoint.getSignature().getName(), Collections.singletonList(age), pageable);
+        Page<Member> cached = readOnlyTx.execute(status -> pageSnapshots.get(key));
+        if (cached != null) {
+            return cached;
+        }
+
+        long before = pageSnapshots.version();
+        Page<Member> page = (Page<Member>) joinPoint.proceed();
+        readOnlyTx.executeWithoutResult(status -> pageSnapshots.put(key, page, before));
+        return page;
+    }
+}
@@ -0,0 +1,225 @@
+package study.datajpa.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.dto.CacheRegionStatsDto;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Member 페이지 조회 결과 캐시 : (쿼리, 파라미터, Pageable) -> (id 목록, totalCount)
+// 엔티티가 아니라 id 만 들고 있다가, 꺼낼 때 영속성 컨텍스트 / 2차 캐시에서 엔티티를 찾아 Page 를 다시 만든다.
+// 엔티티가 모두 캐시에 있으면 content 쿼리도, count 쿼리도 나가지 않는다. (없는 엔티티만 IN 쿼리 한 번)
+// Member 가 등록 / 수정 / 삭제되거나 벌크 수정 (bulkAgePlus) 이 커밋되면 전부 버린다. (어느 페이지가 바뀌는지 알 수 없으므로)
+// TODO 주의) 변경한 트랜잭션 안에서는 캐시를 쓰지 않는다. (flush 전 setAge() 같은 변경 감지 대상 포함, UsernameIndex 와 같음)
+//  이 애플리케이션을 거치지 않은 변경은 ttl 이 지나야 반영된다.
+@Component
+public class PageSnapshotCache implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final Cache<Key, Snapshot> snapshots;
+
+    // 캐시를 비울 때마다 증가. 조회 도중 비워졌다면 조회 결과를 캐시에 넣지 않는다.
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+
+    public PageSnapshotCache(EntityManagerFactory emf,
+                             EntityManager em,
+                             @Value("${datajpa.page-cache.maximum-size:1000}") long maximumSize,
+                             @Value("${datajpa.page-cache.ttl:30s}") Duration ttl) {
+        this.em = em;
+        this.emf = emf;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    // 캐시에 없거나 쓸 수 없으면 null. 트랜잭션 안에서 호출해야 한다.
+    public Page<Member> get(Key key) {
+        if (!isCacheable()) {
+            return null;
+        }
+
+        Snapshot snapshot = snapshots.getIfPresent(key);
+        if (snapshot == null) {
+            misses.increment();
+            return null;
+        }
+
+        List<Member> content = rehydrate(snapshot.getIds());
+        if (content == null) {
+            snapshots.invalidate(key);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new PageImpl<>(content, key.getPageable(), snapshot.getTotal());
+    }
+
+    // before : 조회 전에 읽은 version()
+    public void put(Key key, Page<Member> page, long before) {
+        if (!isCacheable() || version.get() != before) {
+            return;
+        }
+
+        long[] ids = page.getContent().stream().mapToLong(Member::getId).toArray();
+        snapshots.put(key, new Snapshot(ids, page.getTotalElements()));
+        puts.increment();
+    }
+
+    // 벌크 수정처럼 엔티티 이벤트가 없는 변경
+    public void invalidateAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateAll();
+            return;
+        }
+
+        markDirty();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateAll();
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        snapshots.invalidateAll();
+        version.incrementAndGet();
+    }
+
+    public CacheRegionStatsDto stats() {
+        return new CacheRegionStatsDto("(page snapshots)", hits.sum(), misses.sum(), puts.sum(), snapshots.estimatedSize());
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            invalidateAfterCommit();
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            invalidateAfterCommit();
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            invalidateAfterCommit();
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    // 영속성 컨텍스트에도 2차 캐시에도 없는 id 만 모아서 한 번에 조회하고, 나머지는 em.find() 로 꺼낸다.
+    // 그 사이 삭제된 Member 가 있으면 null
+    private List<Member> rehydrate(long[] ids) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        javax.persistence.Cache secondLevel = emf.getCache();
+
+        List<Long> missing = new ArrayList<>();
+        for (long id : ids) {
+            EntityKey entityKey = session.generateEntityKey(id, persister);
+            if (session.getPersistenceContextInternal().getEntity(entityKey) == null
+                    && !secondLevel.contains(Member.class, id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            session.byMultipleIds(Member.class).multiLoad(missing);
+        }
+
+        List<Member> content = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Member member = em.find(Member.class, id);
+            if (member == null) {
+                return null;
+            }
+            content.add(member);
+        }
+        return content;
+    }
+
+    private boolean isCacheable() {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return false;
+        }
+        return !ManagedEntities.hasUnflushedChanges(em, Member.class);
+    }
+
+    private void markDirty() {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PageSnapshotCache.this);
+            }
+        });
+    }
+
+    // 쿼리 (레포지토리 메서드) + 파라미터 + 페이지 번호, 크기, 정렬
+    @lombok.Value
+    public static class Key {
+        String query;
+        List<Object> parameters;
+        Pageable pageable;
+    }
+
+    @lombok.Value
+    private static class Snapshot {
+        long[] ids;
+        long total;
+    }
+}
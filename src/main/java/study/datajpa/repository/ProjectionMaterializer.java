@@ -0,0 +1,133 @@
+package study.datajpa.repository;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// JDBC ResultSet 의 한 행을 DTO 생성자에 바로 넘겨서 만든다.
+// JPQL 의 select new 는 행마다 Object[] 튜플을 만들고 리플렉션 (Constructor.newInstance) 으로 DTO 를 만든다.
+// 여기서는 (DTO 타입, 생성자 파라미터 타입) 마다 생성자를 LambdaMetafactory 로 인터페이스 구현체로 한 번만 만들어 캐시해두고,
+// 컬럼 값을 꺼내서 바로 생성자 인자로 넘긴다. (튜플 X, 리플렉션 X)
+// 컬럼 순서 = 생성자 파라미터 순서, 파라미터는 5개까지
+final class ProjectionMaterializer<T> {
+
+    private static final ConcurrentMap<List<Class<?>>, ProjectionMaterializer<?>> CACHE = new ConcurrentHashMap<>();
+
+    private static final Class<?>[] FACTORY_TYPES = {Factory1.class, Factory2.class, Factory3.class, Factory4.class, Factory5.class};
+
+    private final Object factory;
+    private final ColumnReader[] readers;
+
+    private ProjectionMaterializer(Object factory, ColumnReader[] readers) {
+        this.factory = factory;
+        this.readers = readers;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> ProjectionMaterializer<T> of(Class<T> type, Class<?>... parameterTypes) {
+        List<Class<?>> key = new ArrayList<>();
+        key.add(type);
+        key.addAll(Arrays.asList(parameterTypes));
+        return (ProjectionMaterializer<T>) CACHE.computeIfAbsent(key, k -> create(type, parameterTypes));
+    }
+
+    @SuppressWarnings("unchecked")
+    T materialize(ResultSet rs) throws SQLException {
+        ColumnReader[] r = readers;
+        switch (r.length) {
+            case 1:
+                return (T) ((Factory1) factory).create(r[0].read(rs, 1));
+            case 2:
+                return (T) ((Factory2) factory).create(r[0].read(rs, 1), r[1].read(rs, 2));
+            case 3:
+                return (T) ((Factory3) factory).create(r[0].read(rs, 1), r[1].read(rs, 2), r[2].read(rs, 3));
+            case 4:
+                return (T) ((Factory4) factory).create(r[0].read(rs, 1), r[1].read(rs, 2), r[2].read(rs, 3), r[3].read(rs, 4));
+            default:
+                return (T) ((Factory5) factory).create(r[0].read(rs, 1), r[1].read(rs, 2), r[2].read(rs, 3), r[3].read(rs, 4), r[4].read(rs, 5));
+        }
+    }
+
+    private static ProjectionMaterializer<?> create(Class<?> type, Class<?>[] parameterTypes) {
+        int arity = parameterTypes.length;
+        if (arity < 1 || arity > FACTORY_TYPES.length) {
+            throw new IllegalArgumentException("생성자 파라미터는 1 ~ " + FACTORY_TYPES.length + "개여야 합니다: " + type.getName());
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes));
+            CallSite site = LambdaMetafactory.metafactory(
+                    lookup,
+                    "create",
+                    MethodType.methodType(FACTORY_TYPES[arity - 1]),
+                    MethodType.genericMethodType(arity),  // (Object, ...) Object
+                    constructor,
+                    constructor.type().wrap());           // (Long, String, String) MemberDto
+            Object factory = site.getTarget().invoke();
+
+            ColumnReader[] readers = new ColumnReader[arity];
+            for (int i = 0; i < arity; i++) {
+                readers[i] = readerFor(parameterTypes[i]);
+            }
+            return new ProjectionMaterializer<>(factory, readers);
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("DTO 생성자를 찾을 수 없습니다: " + type.getName() + Arrays.toString(parameterTypes), e);
+        }
+    }
+
+    // 자주 쓰는 타입은 getLong(), getString() 처럼 타입별 메서드로 꺼낸다. (NULL 은 null)
+    private static ColumnReader readerFor(Class<?> type) {
+        if (type == Long.class || type == long.class) {
+            return (rs, column) -> {
+                long value = rs.getLong(column);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == Integer.class || type == int.class) {
+            return (rs, column) -> {
+                int value = rs.getInt(column);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == String.class) {
+            return ResultSet::getString;
+        }
+        Class<?> boxed = MethodType.methodType(type).wrap().returnType();
+        return (rs, column) -> rs.getObject(column, boxed);
+    }
+
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet rs, int column) throws SQLException;
+    }
+
+    interface Factory1 {
+        Object create(Object a);
+    }
+
+    interface Factory2 {
+        Object create(Object a, Object b);
+    }
+
+    interface Factory3 {
+        Object create(Object a, Object b, Object c);
+    }
+
+    interface Factory4 {
+        Object create(Object a, Object b, Object c, Object d);
+    }
+
+    interface Factory5 {
+        Object create(Object a, Object b, Object c, Object d, Object e);
+    }
+}
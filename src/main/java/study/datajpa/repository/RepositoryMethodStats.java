@@ -0,0 +1,48 @@
+package study.datajpa.repository;
+
+import study.datajpa.dto.RepositoryMethodStatsDto;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// 레포지토리 메서드 하나의 누적 통계
+class RepositoryMethodStats {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String method;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder rowsReturned = new LongAdder();
+    private final LongAdder entitiesLoaded = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+
+    RepositoryMethodStats(String method) {
+        this.method = method;
+    }
+
+    void record(long elapsedNanos, long rows, long entities, long flushCount, long statementCount) {
+        calls.increment();
+        latency.record(elapsedNanos);
+        maxNanos.accumulate(elapsedNanos);
+        rowsReturned.add(rows);
+        entitiesLoaded.add(entities);
+        flushes.add(flushCount);
+        statements.add(statementCount);
+    }
+
+    RepositoryMethodStatsDto snapshot() {
+        return new RepositoryMethodStatsDto(
+                method,
+                calls.sum(),
+                latency.percentile(0.5) / NANOS_PER_MILLI,
+                latency.percentile(0.99) / NANOS_PER_MILLI,
+                maxNanos.get() / NANOS_PER_MILLI,
+                rowsReturned.sum(),
+                entitiesLoaded.sum(),
+                flushes.sum(),
+                statements.sum());
+    }
+}
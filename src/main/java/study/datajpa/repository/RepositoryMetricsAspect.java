@@ -0,0 +1,122 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.datajpa.dto.RepositoryMethodStatsDto;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.BaseStream;
+import java.util.stream.Collectors;
+
+// 레포지토리 메서드별 호출 수, 응답 시간(p50, p99), 반환 행 수, 로딩한 엔티티 수, flush 수, SQL 수를 모은다.
+// 응답 시간이 slow-query-threshold 를 넘으면 호출한 메서드, 파라미터, 실행된 SQL 을 로그로 남긴다.
+// TODO 참고) MemberRepositoryImpl 의 메서드는 MemberRepository 를 통해 호출되므로 MemberRepository.xxx 로 집계된다.
+@Slf4j
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private final ConcurrentMap<String, RepositoryMethodStats> stats = new ConcurrentHashMap<>();
+    private final long slowQueryThresholdNanos;
+
+    public RepositoryMetricsAspect(@Value("${datajpa.metrics.slow-query-threshold:200ms}") Duration slowQueryThreshold) {
+        this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+    }
+
+    @Around("execution(* study.datajpa.repository.MemberRepository+.*(..))" +
+            " || execution(* study.datajpa.repository.TeamRepository+.*(..))" +
+            " || execution(* study.datajpa.repository.MemberJpaRepository.*(..))" +
+            " || execution(* study.datajpa.repository.TeamJpaRepository.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        JpaWorkInterceptor.Counters counters = JpaWorkInterceptor.current();
+        long statementsBefore = counters.statements;
+        long entitiesBefore = counters.entitiesLoaded;
+        long flushesBefore = counters.flushes;
+        counters.startCapture();
+
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            List<String> sql = counters.stopCapture();
+            String method = methodName(joinPoint);
+
+            stats.computeIfAbsent(method, RepositoryMethodStats::new)
+                    .record(elapsed,
+                            rowsOf(result),
+                            counters.entitiesLoaded - entitiesBefore,
+                            counters.flushes - flushesBefore,
+                            counters.statements - statementsBefore);
+
+            if (elapsed >= slowQueryThresholdNanos) {
+                log.warn("slow query {}ms {} params={} sql={}",
+                        elapsed / 1_000_000, method, Arrays.toString(joinPoint.getArgs()), sql);
+            }
+        }
+    }
+
+    public List<RepositoryMethodStatsDto> snapshot() {
+        return stats.values().stream()
+                .map(RepositoryMethodStats::snapshot)
+                .sorted(Comparator.comparing(RepositoryMethodStatsDto::getMethod))
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    // Spring Data 레포지토리는 JDK 프록시라서 실제 인터페이스 이름을 찾아서 쓴다. (findById 처럼 상속받은 메서드도 MemberRepository 로 묶기 위해)
+    private static String methodName(ProceedingJoinPoint joinPoint) {
+        Class<?> type = joinPoint.getTarget().getClass();
+        if (Proxy.isProxyClass(type)) {
+            type = Arrays.stream(type.getInterfaces())
+                    .filter(candidate -> candidate.getPackageName().equals(RepositoryMetricsAspect.class.getPackageName()))
+                    .findFirst()
+                    .orElse(type);
+        }
+        return type.getSimpleName() + "." + joinPoint.getSignature().getName();
+    }
+
+    private static long rowsOf(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof KeysetSlice) {
+            return ((KeysetSlice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Map || result instanceof Number || result instanceof Boolean) {
+            return 0; // count(), 벌크 수정 건수 등은 행이 아니다.
+        }
+        if (result instanceof BaseStream) {
+            return 0; // Stream 은 호출이 끝난 뒤에 읽히므로 셀 수 없다.
+        }
+        return 1;
+    }
+}
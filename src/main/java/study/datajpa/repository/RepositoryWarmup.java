@@ -0,0 +1,195 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import study.datajpa.dto.QueryWarmupDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Parameter;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 애플리케이션이 요청을 받기 전에 (ApplicationReadyEvent 전에) 레포지토리 쿼리를 미리 한 번씩 돌려둔다.
+// 1. @Query 로 선언한 JPQL, NamedQuery 를 createQuery() 해서 하이버네이트 쿼리 플랜 캐시에 올린다. (JPQL 파싱, SQL 생성)
+// 2. 그 JPQL 을 임의의 파라미터로 EntityManager 에서 직접 executions 번 실행한다. (조회 전용 트랜잭션, 롤백)
+//    JDBC 드라이버, 하이버네이트 쿼리 실행 경로, JIT 까지 데워진다.
+// 쿼리별 소요 시간은 로그로 남기고 /jpa/stats/warmup 으로도 볼 수 있다.
+// TODO 주의) 레포지토리 메서드를 호출하지 않는다. UsernameLookupAspect, PageSnapshotAspect, 쿼리 캐시 힌트 등이
+//  임의의 파라미터로 조회한 결과를 캐시에 채우고 레포지토리 통계까지 바꿔버리기 때문이다.
+//  따라서 JPQL 이 없는 메서드 (메서드 이름 쿼리, 네이티브 쿼리) 와 @Modifying (벌크 수정), @Async 메서드는 실행하지 않는다.
+//  파라미터 값을 만들 수 없는 쿼리 (문자열, 숫자, boolean 외의 타입) 도 컴파일만 한다.
+// TODO 참고) 기본값은 꺼져 있다. (테스트, 벤치마크 컨텍스트마다 돌지 않도록) 애플리케이션은 application.yml 에서 켠다.
+@Slf4j
+@Component
+public class RepositoryWarmup implements ApplicationRunner {
+
+    private final ListableBeanFactory beanFactory;
+    private final EntityManager em;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final int executions;
+
+    private volatile List<QueryWarmupDto> results = Collections.emptyList();
+
+    public RepositoryWarmup(ListableBeanFactory beanFactory,
+                            EntityManager em,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${datajpa.warmup.enabled:false}") boolean enabled,
+                            @Value("${datajpa.warmup.executions:3}") int executions) {
+        this.beanFactory = beanFactory;
+        this.em = em;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.tx.setReadOnly(true);
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.executions = executions;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            warmUp();
+        }
+    }
+
+    public List<QueryWarmupDto> warmUp() {
+        long start = System.nanoTime();
+        Repositories repositories = new Repositories(beanFactory);
+        List<QueryWarmupDto> warmed = new ArrayList<>();
+        for (Class<?> domainType : repositories) {
+            RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+            for (Method method : information.getQueryMethods()) {
+                warmed.add(warmUp(information, method));
+            }
+        }
+
+        results = Collections.unmodifiableList(warmed);
+        log.info("레포지토리 쿼리 {}개 워밍업 완료 ({}ms)", warmed.size(), millis(System.nanoTime() - start));
+        return results;
+    }
+
+    public List<QueryWarmupDto> getResults() {
+        return results;
+    }
+
+    private QueryWarmupDto warmUp(RepositoryInformation information, Method method) {
+        String name = information.getRepositoryInterface().getSimpleName() + "." + method.getName();
+        Query declared = AnnotatedElementUtils.findMergedAnnotation(method, Query.class);
+
+        long compileStart = System.nanoTime();
+        boolean bindable = Boolean.TRUE.equals(tx.execute(status -> compile(method, declared)));
+        double compileMillis = millis(System.nanoTime() - compileStart);
+
+        double firstMillis = 0;
+        double lastMillis = 0;
+        int executed = 0;
+        if (bindable && executable(method)) {
+            for (int i = 0; i < executions; i++) {
+                long executionStart = System.nanoTime();
+                if (!execute(name, declared)) {
+                    break;
+                }
+                lastMillis = millis(System.nanoTime() - executionStart);
+                if (executed++ == 0) {
+                    firstMillis = lastMillis;
+                }
+            }
+        }
+
+        log.info("워밍업 {} : 컴파일 {}ms, 실행 {}회 (첫 실행 {}ms, 마지막 {}ms)", name, compileMillis, executed, firstMillis, lastMillis);
+        return new QueryWarmupDto(name, compileMillis, executed, firstMillis, lastMillis);
+    }
+
+    // 쿼리 플랜 캐시는 JPQL 문자열이 key 이므로, 같은 문자열로 createQuery() 만 해두면 된다.
+    // 파라미터 값을 모두 만들 수 있으면 (실행할 수 있으면) true
+    private boolean compile(Method method, Query declared) {
+        if (!declaresJpql(declared)) {
+            return false;
+        }
+
+        try {
+            javax.persistence.Query query = createQuery(declared);
+            if (StringUtils.hasText(declared.countQuery())) {
+                em.createQuery(declared.countQuery());
+            }
+            return query.getParameters().stream()
+                    .allMatch(parameter -> sample(parameter.getParameterType()) != null);
+        } catch (RuntimeException e) {
+            log.warn("워밍업 중 JPQL 컴파일 실패 : {}", method, e);
+            return false;
+        }
+    }
+
+    private boolean execute(String name, Query declared) {
+        try {
+            tx.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                javax.persistence.Query query = createQuery(declared);
+                for (Parameter<?> parameter : query.getParameters()) {
+                    bind(query, parameter);
+                }
+                query.setMaxResults(1).getResultList();
+            });
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("워밍업 중 쿼리 실행 실패 : {}", name, e);
+            return false;
+        }
+    }
+
+    private javax.persistence.Query createQuery(Query declared) {
+        return StringUtils.hasText(declared.value())
+                ? em.createQuery(declared.value())
+                : em.createNamedQuery(declared.name());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void bind(javax.persistence.Query query, Parameter<?> parameter) {
+        query.setParameter((Parameter<Object>) parameter, sample(parameter.getParameterType()));
+    }
+
+    private static boolean declaresJpql(Query declared) {
+        return declared != null && !declared.nativeQuery()
+                && (StringUtils.hasText(declared.value()) || StringUtils.hasText(declared.name()));
+    }
+
+    private static boolean executable(Method method) {
+        return !AnnotatedElementUtils.hasAnnotation(method, Modifying.class)
+                && !AnnotatedElementUtils.hasAnnotation(method, Async.class);
+    }
+
+    // 결과가 없어도 되므로 아무 값이나 넣는다. 만들 수 없는 타입이면 null (실행 X)
+    // in 절 파라미터 (컬렉션) 도 하이버네이트가 원소 타입을 알려주므로 값 하나만 넣으면 된다.
+    private static Object sample(Class<?> type) {
+        if (type == String.class) {
+            return "";
+        } else if (type == int.class || type == Integer.class) {
+            return 0;
+        } else if (type == long.class || type == Long.class) {
+            return 0L;
+        } else if (type == boolean.class || type == Boolean.class) {
+            return false;
+        }
+        return null;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
@@ -0,0 +1,34 @@
+package study.datajpa.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+import study.datajpa.config.DataAccessProperties;
+import study.datajpa.dto.StatementCacheStatsDto;
+
+import javax.persistence.EntityManagerFactory;
+
+// 쿼리 플랜 캐시 (JPQL -> SQL) hit/miss 와 prepared statement 수 (hibernate.generate_statistics: true 필요)
+// TODO 참고) 드라이버의 prepared statement 캐시 (H2 의 QUERY_CACHE_SIZE) 는 hit 수를 알려주지 않는다.
+//  statement 는 매번 prepare 되므로, 플랜 캐시 hit 률이 높고 SQL 모양이 적을수록 드라이버 캐시도 잘 맞는다고 보면 된다.
+@Component
+public class StatementCacheStatistics {
+
+    private final Statistics statistics;
+    private final DataAccessProperties properties;
+
+    public StatementCacheStatistics(EntityManagerFactory emf, DataAccessProperties properties) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        this.properties = properties;
+    }
+
+    public StatementCacheStatsDto snapshot() {
+        return new StatementCacheStatsDto(
+                properties.getStatementCacheSize(),
+                properties.getQueryPlanCacheSize(),
+                statistics.getQueryPlanCacheHitCount(),
+                statistics.getQueryPlanCacheMissCount(),
+                statistics.getPrepareStatementCount(),
+                statistics.getCloseStatementCount());
+    }
+}
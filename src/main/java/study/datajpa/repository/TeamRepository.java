@@ -1,7 +1,18 @@
 package study.datajpa.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.scheduling.annotation.Async;
+import study.datajpa.config.AsyncConfig;
 import study.datajpa.entity.Team;
 
-public interface TeamRepository extends JpaRepository<Team, Long> {
+import java.util.concurrent.CompletableFuture;
+
+public interface TeamRepository extends JpaRepository<Team, Long>, TeamRepositoryCustom {
+
+    // 비동기 조회 (MemberRepository 의 비동기 조회 메서드 참고)
+    @Async(AsyncConfig.REPOSITORY_EXECUTOR)
+    CompletableFuture<Team> findAsyncByName(String name); // 없으면 null 로 완료
+
+    @Async(AsyncConfig.REPOSITORY_EXECUTOR)
+    CompletableFuture<Long> countAsyncBy();
 }
@@ -0,0 +1,15 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Team;
+import study.datajpa.entity.TeamStats;
+
+import java.util.Optional;
+
+public interface TeamRepositoryCustom {
+
+    // 대량 등록 : batchSize 개씩 JDBC batch insert 후 영속성 컨텍스트를 비운다. 등록한 건수를 반환
+    long saveAllBatched(Iterable<Team> teams, int batchSize);
+
+    // 팀원 수, 평균 나이 : team_stats 를 PK 로 한 건 조회한다. (member 테이블 집계 X)
+    Optional<TeamStats> findStats(Long teamId);
+}
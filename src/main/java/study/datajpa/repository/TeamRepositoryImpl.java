@@ -0,0 +1,27 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Team;
+import study.datajpa.entity.TeamStats;
+
+import javax.persistence.EntityManager;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class TeamRepositoryImpl implements TeamRepositoryCustom {
+
+    private final EntityManager em;
+
+    @Override
+    @Transactional
+    public long saveAllBatched(Iterable<Team> teams, int batchSize) {
+        return JpaBatchInserts.persistAll(em, teams, batchSize);
+    }
+
+    // TeamStats 는 SQL 로만 수정되므로, 같은 영속성 컨텍스트에서 이미 조회한 적이 있다면 그 값은 커밋 전 값이다.
+    @Override
+    public Optional<TeamStats> findStats(Long teamId) {
+        return Optional.ofNullable(em.find(TeamStats.class, teamId));
+    }
+}
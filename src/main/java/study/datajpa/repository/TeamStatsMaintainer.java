@@ -0,0 +1,266 @@
+package study.datajpa.repository;
+
+import org.hibernate.Hibernate;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.query.NativeQuery;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.entity.TeamStats;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// team_stats 집계 테이블을 Member 변경 이벤트로 갱신한다.
+// 1. 하이버네이트의 insert / update / delete 이벤트에서 팀별 변경분 (팀원 수, 나이 합계) 을 세션 단위로 모아둔다.
+//    update 이벤트는 변경 전후 값을 모두 주기 때문에 changeTeam() (팀 변경) 과 나이 변경을 정확히 알 수 있다.
+// 2. 커밋 직전 (마지막 flush 이후) 에 팀별로 update 쿼리 한 번씩 날린다. 같은 트랜잭션이라 Member 변경과 함께 커밋 / 롤백된다.
+// 3. 집계 행이 없는 팀이면 그 시점의 member 테이블로 집계해서 새로 넣는다.
+//    두 트랜잭션이 같은 팀의 행을 동시에 넣으려 하면 늦은 쪽은 savepoint 로 insert 만 되돌리고 먼저 들어간 행에 변경분을 더한다.
+// 4. 기능이 생기기 전부터 있던 팀은 집계 행이 없으므로 애플리케이션 시작 시 backfill() 로 채운다.
+// TODO 참고) 벌크 쿼리 (bulkAgePlus) 는 이벤트가 없으므로 MemberBulkUpdateAspect 가 벌크 쿼리 직전에 같은 트랜잭션에서 agesShiftedFrom() 를 호출한다.
+//  테이블 전체를 다시 계산하지 않고, 벌크 쿼리로 나이가 +1 될 팀원 수만큼 팀별로 나이 합계를 더한다.
+//  이벤트로 모은 변경분은 벌크 쿼리 전의 나이 기준이므로 두 변경분을 더하면 커밋 시점의 값과 같다.
+@Component
+public class TeamStatsMaintainer implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        ApplicationRunner {
+
+    private static final String INSERT_STATS_SQL = "insert into team_stats (team_id, member_count, age_sum)" +
+            " select t.team_id, count(m.member_id), coalesce(sum(m.age), 0)" +
+            " from team t left join member m on m.team_id = t.team_id" +
+            " where t.team_id = ? group by t.team_id";
+
+    private static final String BACKFILL_STATS_SQL = "insert into team_stats (team_id, member_count, age_sum)" +
+            " select t.team_id, count(m.member_id), coalesce(sum(m.age), 0)" +
+            " from team t left join member m on m.team_id = t.team_id" +
+            " where not exists (select 1 from team_stats s where s.team_id = t.team_id)" +
+            " group by t.team_id";
+
+    // SQLState 23xxx : 제약 조건 위반 (PK 중복)
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    private final EntityManager em;
+    private final TransactionTemplate tx;
+    private final ConcurrentMap<SharedSessionContractImplementor, TeamDeltas> pending = new ConcurrentHashMap<>();
+
+    public TeamStatsMaintainer(EntityManagerFactory emf, EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.tx = new TransactionTemplate(transactionManager);
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    // "age >= :age 인 Member 나이 + 1" 벌크 쿼리 직전에 호출한다. (팀원 수는 벌크 나이 수정으로 바뀌지 않음)
+    // 대상 Member 가 있는 팀만 그 수만큼 나이 합계를 더한다. 벌크 쿼리와 같은 트랜잭션에서만 호출할 수 있다.
+    // TODO 주의) 벌크 쿼리보다 먼저 집계 행을 잠그므로, 그 사이 같은 팀에 커밋하려는 트랜잭션은 이 트랜잭션이 끝날 때까지 기다린다.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int agesShiftedFrom(int age) {
+        return em.createNativeQuery("update team_stats s set age_sum = age_sum +" +
+                        " (select count(*) from member m where m.team_id = s.team_id and m.age >= :age)" +
+                        " where s.team_id in (select m.team_id from member m where m.age >= :age)")
+                .setParameter("age", age)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Member.class)
+                .addSynchronizedEntityClass(TeamStats.class)
+                .executeUpdate();
+    }
+
+    // 집계 행이 없는 팀 (기능이 생기기 전부터 있던 팀) 을 member 테이블로 집계해서 넣는다.
+    public int backfill() {
+        return tx.execute(status -> em.createNativeQuery(BACKFILL_STATS_SQL)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(TeamStats.class)
+                .executeUpdate());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        backfill();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            Member member = (Member) entity;
+            deltas(event.getSession()).add(teamId(member.getTeam()), 1, member.getAge());
+        } else if (entity instanceof Team) {
+            // 팀이 생기면 빈 집계 행을 만든다.
+            deltas(event.getSession()).add(((Team) entity).getId(), 0, 0);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member) || event.getOldState() == null) {
+            return;
+        }
+
+        EntityPersister persister = event.getPersister();
+        int teamIndex = persister.getEntityMetamodel().getPropertyIndex("team");
+        int ageIndex = persister.getEntityMetamodel().getPropertyIndex("age");
+
+        Long oldTeamId = teamId(event.getOldState()[teamIndex]);
+        Long newTeamId = teamId(event.getState()[teamIndex]);
+        int oldAge = (Integer) event.getOldState()[ageIndex];
+        int newAge = (Integer) event.getState()[ageIndex];
+        if (Objects.equals(oldTeamId, newTeamId) && oldAge == newAge) {
+            return;
+        }
+
+        TeamDeltas deltas = deltas(event.getSession());
+        deltas.add(oldTeamId, -1, -oldAge);
+        deltas.add(newTeamId, 1, newAge);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            int teamIndex = event.getPersister().getEntityMetamodel().getPropertyIndex("team");
+            int ageIndex = event.getPersister().getEntityMetamodel().getPropertyIndex("age");
+            Object[] deletedState = event.getDeletedState();
+            deltas(event.getSession()).add(teamId(deletedState[teamIndex]), -1, -(Integer) deletedState[ageIndex]);
+        } else if (entity instanceof Team) {
+            deltas(event.getSession()).deleteTeam(((Team) entity).getId());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    // 세션 (= 트랜잭션) 마다 한 번만 커밋 직전 / 직후 작업을 등록한다.
+    private TeamDeltas deltas(SharedSessionContractImplementor session) {
+        return pending.computeIfAbsent(session, key -> {
+            TeamDeltas deltas = new TeamDeltas();
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) this::flushDeltas);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> pending.remove(s));
+            return deltas;
+        });
+    }
+
+    private void flushDeltas(SessionImplementor session) {
+        TeamDeltas deltas = pending.remove(session);
+        if (deltas == null) {
+            return;
+        }
+
+        for (Long teamId : deltas.deletedTeams) {
+            session.createNativeQuery("delete from team_stats where team_id = :teamId")
+                    .setParameter("teamId", teamId)
+                    .addSynchronizedEntityClass(TeamStats.class)
+                    .executeUpdate();
+        }
+
+        for (Map.Entry<Long, long[]> delta : deltas.changes.entrySet()) {
+            Long teamId = delta.getKey();
+            if (deltas.deletedTeams.contains(teamId)) {
+                continue;
+            }
+
+            // 집계 행이 없으면 지금 member 테이블로 집계해서 넣는다. (이미 flush 가 끝나서 이번 트랜잭션의 변경분까지 반영된 값)
+            // 그 사이 다른 트랜잭션이 먼저 넣었다면 그 행에 변경분을 더한다.
+            if (addDelta(session, teamId, delta.getValue()) == 0 && !insertStats(session, teamId)) {
+                addDelta(session, teamId, delta.getValue());
+            }
+        }
+    }
+
+    private int addDelta(SessionImplementor session, Long teamId, long[] delta) {
+        return session.createNativeQuery("update team_stats set member_count = member_count + :count," +
+                        " age_sum = age_sum + :ageSum where team_id = :teamId")
+                .setParameter("count", delta[0])
+                .setParameter("ageSum", delta[1])
+                .setParameter("teamId", teamId)
+                .addSynchronizedEntityClass(TeamStats.class)
+                .executeUpdate();
+    }
+
+    // 다른 트랜잭션이 먼저 행을 넣어서 PK 가 중복되면 false
+    // TODO 주의) 하이버네이트 쿼리로 실행하면 예외를 잡아도 트랜잭션이 rollback-only 가 되므로 JDBC 로 직접 실행하고,
+    //  실패한 insert 만 savepoint 로 되돌린다. (PostgreSQL 은 실패한 문장 이후 트랜잭션 전체를 못 쓰게 되므로 savepoint 가 필요)
+    private boolean insertStats(SessionImplementor session, Long teamId) {
+        return session.doReturningWork(connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_STATS_SQL)) {
+                insert.setLong(1, teamId);
+                insert.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+                return true;
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (e.getSQLState() != null && e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)) {
+                    return false;
+                }
+                throw e;
+            }
+        });
+    }
+
+    // 팀이 없는 Member 는 집계하지 않는다. (null)
+    // 프록시라면 초기화하지 않고 id 만 꺼낸다.
+    private static Long teamId(Object team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) Hibernate.unproxy(team)).getId();
+    }
+
+    private static class TeamDeltas {
+        // team_id -> {팀원 수 변경분, 나이 합계 변경분}
+        private final Map<Long, long[]> changes = new LinkedHashMap<>();
+        private final Set<Long> deletedTeams = new HashSet<>();
+
+        void add(Long teamId, long count, long ageSum) {
+            if (teamId == null) {
+                return;
+            }
+            long[] delta = changes.computeIfAbsent(teamId, id -> new long[2]);
+            delta[0] += count;
+            delta[1] += ageSum;
+        }
+
+        void deleteTeam(Long teamId) {
+            deletedTeams.add(teamId);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package study.datajpa.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+// username -> Member id 목록 캐시 (없는 username 은 빈 배열로 들고 있는다 = negative 캐시)
+// UsernameLookupAspect 가 username 조회 메서드 앞에서 사용한다. 없는 username 은 DB 에 가지 않고, 있는 username 은 PK 조회가 된다.
+// Member 등록 / 삭제 / username 변경이 커밋되면 해당 username 을 지운다. (MemberCountCache 와 같은 방식)
+// TODO 주의) 변경한 트랜잭션 안에서는 캐시를 쓰지 않는다. (flush 전 persist, remove, setUsername() 같은 변경 감지 대상 포함)
+//  원래 쿼리라면 auto flush 로 보였을 변경이므로, 캐시의 "없는 username" 을 믿으면 안 된다.
+//  이 애플리케이션을 거치지 않은 변경 (다른 서버, 직접 SQL) 은 ttl 이 지나야 반영된다.
+@Component
+public class UsernameIndex implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final long[] NONE = new long[0];
+
+    private final EntityManager em;
+    private final Cache<String, long[]> ids;
+
+    // 캐시를 지울 때마다 증가. DB 조회 도중 값이 바뀌었다면 조회 결과를 캐시에 넣지 않는다.
+    private final AtomicLong version = new AtomicLong();
+
+    public UsernameIndex(EntityManagerFactory emf,
+                         EntityManager em,
+                         @Value("${datajpa.username-index.maximum-size:100000}") long maximumSize,
+                         @Value("${datajpa.username-index.ttl:10m}") Duration ttl) {
+        this.em = em;
+        this.ids = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    // username 인 Member 의 id 목록 (id 오름차순). 트랜잭션 안에서 호출해야 한다.
+    public long[] idsOf(String username) {
+        if (!isCacheable()) {
+            return load(username);
+        }
+
+        long[] cached = ids.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+
+        // id 조회 쿼리가 auto flush 를 일으키면 이 트랜잭션이 dirty 가 될 수 있으므로 조회 후에 한 번 더 확인한다.
+        long before = version.get();
+        long[] loaded = load(username);
+        if (isCacheable() && version.get() == before) {
+            ids.asMap().putIfAbsent(username, loaded);
+        }
+        return loaded;
+    }
+
+    public void evict(String username) {
+        if (username != null) {
+            ids.invalidate(username);
+        }
+        version.incrementAndGet();
+    }
+
+    public void clear() {
+        ids.invalidateAll();
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            evictAfterCommit(((Member) event.getEntity()).getUsername());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member) || event.getOldState() == null) {
+            return;
+        }
+        int index = event.getPersister().getEntityMetamodel().getPropertyIndex("username");
+        String oldUsername = (String) event.getOldState()[index];
+        String newUsername = (String) event.getState()[index];
+        if (!Objects.equals(oldUsername, newUsername)) {
+            evictAfterCommit(oldUsername);
+            evictAfterCommit(newUsername);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            int index = event.getPersister().getEntityMetamodel().getPropertyIndex("username");
+            evictAfterCommit((String) event.getDeletedState()[index]);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private long[] load(String username) {
+        List<Long> found = em.createQuery("select m.id from Member m where m.username = :username order by m.id", Long.class)
+                .setParameter("username", username)
+                .getResultList();
+        return found.isEmpty() ? NONE : found.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // 이 트랜잭션에서 Member 를 바꿨거나 (flush 된 변경), 아직 flush 되지 않은 변경이 있으면 캐시를 쓰지 않는다.
+    private boolean isCacheable() {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return false;
+        }
+        return !ManagedEntities.hasUnflushedChanges(em, Member.class);
+    }
+
+    private void evictAfterCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(username);
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UsernameIndex.this);
+                }
+            });
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(username);
+            }
+        });
+    }
+}
@@ -0,0 +1,131 @@
+package study.datajpa.repository;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.QueryHint;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+// MemberRepository 의 username 조회 메서드 앞에서 UsernameIndex 를 먼저 확인한다.
+// - 없는 username (회원가입 중복 체크 등) : DB 에 가지 않고 바로 빈 결과
+// - 있는 username : id 로 조회 (영속성 컨텍스트에 있으면 그대로, 없으면 PK 조회 / 여러 건이면 IN 쿼리 한 번)
+// 캐시 결과를 믿을 수 없는 경우 (조회한 Member 가 없거나 username 이 다름, 단건 조회인데 여러 건) 는 원래 쿼리를 그대로 실행한다.
+// 조회 전용 (@ReadOnlyQuery) 메서드로 새로 읽은 엔티티는 원래 쿼리처럼 readOnly 로 만든다.
+// datajpa.username-index.enabled 가 false 면 항상 원래 쿼리를 실행한다. (쿼리 방식끼리 비교하는 벤치마크 등)
+@Aspect
+@Component
+public class UsernameLookupAspect {
+
+    private static final String READ_ONLY_HINT = "org.hibernate.readOnly";
+
+    private final UsernameIndex usernameIndex;
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTx;
+    private final boolean enabled;
+
+    public UsernameLookupAspect(UsernameIndex usernameIndex, EntityManager em, PlatformTransactionManager transactionManager,
+                                @Value("${datajpa.username-index.enabled:true}") boolean enabled) {
+        this.usernameIndex = usernameIndex;
+        this.enabled = enabled;
+        this.em = em;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true); // 호출한 쪽에 트랜잭션이 있으면 거기에 참여한다.
+    }
+
+    @Around("(execution(* study.datajpa.repository.MemberRepository.findByUsername(String))" +
+            " || execution(* study.datajpa.repository.MemberRepository.findListByUsername(String))" +
+            " || execution(* study.datajpa.repository.MemberRepository.findMemberByUsername(String))" +
+            " || execution(* study.datajpa.repository.MemberRepository.findOptionalByUsername(String))" +
+            " || execution(* study.datajpa.repository.MemberRepository.findReadOnlyByUsername(String)))" +
+            " && args(username)")
+    public Object lookup(ProceedingJoinPoint joinPoint, String username) throws Throwable {
+        if (!enabled || username == null) {
+            return joinPoint.proceed();
+        }
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        boolean readOnly = isReadOnly(method);
+        List<Member> members = readOnlyTx.execute(status -> load(username, readOnly));
+        if (members == null) {
+            return joinPoint.proceed();
+        }
+
+        Class<?> returnType = method.getReturnType();
+        if (List.class.isAssignableFrom(returnType)) {
+            return members;
+        }
+        if (members.size() > 1) {
+            return joinPoint.proceed(); // 원래 쿼리가 IncorrectResultSizeDataAccessException 을 던지게 둔다.
+        }
+        Member member = members.isEmpty() ? null : members.get(0);
+        return returnType == Optional.class ? Optional.ofNullable(member) : member;
+    }
+
+    // 캐시를 믿을 수 없으면 null
+    private List<Member> load(String username, boolean readOnly) {
+        long[] ids = usernameIndex.idsOf(username);
+        if (ids.length == 0) {
+            return Collections.emptyList();
+        }
+
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        List<Long> newlyLoaded = new ArrayList<>();
+        for (long id : ids) {
+            EntityKey key = session.generateEntityKey(id, persister);
+            if (session.getPersistenceContextInternal().getEntity(key) == null) {
+                newlyLoaded.add(id);
+            }
+        }
+
+        List<Member> members = session.byMultipleIds(Member.class)
+                .enableSessionCheck(true)
+                .multiLoad(LongStream.of(ids).boxed().toArray(Long[]::new));
+        for (Member member : members) {
+            if (member == null || !username.equals(member.getUsername())) {
+                usernameIndex.evict(username);
+                return null;
+            }
+        }
+
+        if (readOnly && !session.isDefaultReadOnly()) {
+            for (Member member : members) {
+                if (newlyLoaded.contains(member.getId())) {
+                    session.setReadOnly(member, true);
+                }
+            }
+        }
+        return members;
+    }
+
+    private static boolean isReadOnly(Method method) {
+        QueryHints hints = AnnotatedElementUtils.findMergedAnnotation(method, QueryHints.class);
+        if (hints == null) {
+            return false;
+        }
+        for (QueryHint hint : hints.value()) {
+            if (READ_ONLY_HINT.equals(hint.name()) && Boolean.parseBoolean(hint.value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 비동기 조회는 다른 트랜잭션에서 실행되므로 테스트 트랜잭션 (@Transactional) 없이 데이터를 커밋하고, 끝나면 직접 지운다.
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+
+    @Test
+    public void summary() throws Exception {
+        Member member = memberRepository.save(new Member("summaryMember", 10));
+        try {
+            // CompletableFuture 를 반환하므로 요청은 비동기로 시작되고, 결과가 준비되면 다시 dispatch 해서 응답을 쓴다.
+            MvcResult started = mockMvc.perform(get("/members/{username}/summary", "summaryMember"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.members.length()").value(1))
+                    .andExpect(jsonPath("$.members[0].id").value(member.getId()))
+                    .andExpect(jsonPath("$.members[0].username").value("summaryMember"))
+                    .andExpect(jsonPath("$.teamCount").value(teamRepository.count()));
+        } finally {
+            memberRepository.deleteById(member.getId());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package study.datajpa.entity;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// flush 모드 AuditingClock 을 테스트한다. 시계는 읽을 때마다 1ms 씩 흐르는 테스트용 Clock 으로 바꿔 끼운다.
+@SpringBootTest(properties = "datajpa.auditing.clock=flush")
+@Transactional
+class AuditingClockTest {
+
+    @TestConfiguration
+    static class TickingClockConfig {
+        @Bean
+        Clock clock() {
+            return new TickingClock();
+        }
+    }
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void sameInstantPerFlush() {
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        em.persist(member1);
+        em.persist(member2);
+        em.flush();
+
+        // 같은 flush 에 저장된 엔티티는 같은 시간 (같은 인스턴스)
+        assertThat(member1.getCreatedDate()).isSameAs(member2.getCreatedDate());
+
+        // flush 가 끝나면 다음 flush 는 새로 시간을 읽는다.
+        member1.setAge(11);
+        Member member3 = new Member("member3", 30);
+        em.persist(member3);
+        em.flush();
+
+        assertThat(member3.getCreatedDate()).isAfter(member2.getCreatedDate());
+        assertThat(member1.getUpdatedDate()).isEqualTo(member3.getCreatedDate());
+    }
+
+    @Test
+    public void coarseClock() throws InterruptedException {
+        TickingClock clock = new TickingClock();
+        try (CoarseAuditingClock coarse = new CoarseAuditingClock(clock, Duration.ofHours(1))) {
+            // resolution 안에서는 시계를 다시 읽지 않고 같은 인스턴스를 돌려준다.
+            assertThat(coarse.now()).isSameAs(coarse.now());
+
+            LocalDateTime before = coarse.now();
+            coarse.tick();
+            assertThat(coarse.now()).isAfter(before);
+        }
+
+        try (CoarseAuditingClock coarse = new CoarseAuditingClock(clock, Duration.ofMillis(1))) {
+            LocalDateTime first = coarse.now();
+            Thread.sleep(50);
+            assertThat(coarse.now()).isAfter(first);
+        }
+    }
+
+    static class TickingClock extends Clock {
+        private final AtomicLong millis = new AtomicLong();
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.incrementAndGet());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package study.datajpa.entity;
 
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -12,6 +13,8 @@ import javax.persistence.PersistenceContext;
 
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 @Transactional
 @Rollback(value = false)
@@ -68,4 +71,27 @@ class MemberTest {
         System.out.println("findMember.getCreatedDate = " + findMember.getCreatedDate());
         System.out.println("findMember.getUpdatedDate = " + findMember.getUpdatedDate());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void changeTeamWithoutLoadingMembers() {
+        Team team = new Team("teamA");
+        em.persist(team);
+        em.persist(new Member("member1", 10, team));
+        em.persist(new Member("member2", 20, team));
+
+        em.flush();
+        em.clear();
+
+        // when
+        Team findTeam = em.find(Team.class, team.getId());
+        Member member3 = new Member("member3", 30);
+        em.persist(member3);
+        member3.changeTeam(findTeam);
+
+        // then
+        // add(), size() 를 했는데도 팀원 컬렉션은 초기화되지 않는다. (size 는 count 쿼리)
+        assertThat(Hibernate.isInitialized(findTeam.getMembers())).isFalse();
+        assertThat(findTeam.getMembers().size()).isEqualTo(3);
+        assertThat(Hibernate.isInitialized(findTeam.getMembers())).isFalse();
+    }
+}
@@ -1,22 +1,57 @@
 package study.datajpa.repository;
 
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.config.AsyncConfig;
+import study.datajpa.config.DataAccessProperties;
+import study.datajpa.dto.BatchFetchStatsDto;
+import study.datajpa.dto.ConnectionPoolStatsDto;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberSummary;
+import study.datajpa.dto.QueryWarmupDto;
+import study.datajpa.dto.RepositoryMethodStatsDto;
+import study.datajpa.dto.StatementCacheStatsDto;
+import study.datajpa.dto.UsernameAgeDto;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
+import study.datajpa.entity.TeamStats;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -27,6 +62,17 @@ class JpaRepositoryTest {
     @Autowired MemberRepository memberRepository;
     @Autowired MemberJpaRepository memberJpaRepository;
     @Autowired TeamRepository teamRepository;
+    @Autowired BatchFetchStatistics batchFetchStatistics;
+    @Autowired RepositoryMetricsAspect repositoryMetricsAspect;
+    @Autowired OptimisticLockRetryExecutor retryExecutor;
+    @Autowired ConnectionPoolMetrics connectionPoolMetrics;
+    @Autowired StatementCacheStatistics statementCacheStatistics;
+    @Autowired DataAccessProperties dataAccessProperties;
+    @Autowired RepositoryWarmup repositoryWarmup;
+    @Autowired TeamStatsMaintainer teamStatsMaintainer;
+    @Autowired @Qualifier(AsyncConfig.REPOSITORY_EXECUTOR) TaskExecutor repositoryExecutor;
+
+    @Autowired PlatformTransactionManager transactionManager;
 
     @PersistenceContext
     EntityManager em;
@@ -143,6 +189,24 @@ class JpaRepositoryTest {
 
     }
 
+    @Test
+    public void dynamicProjection() {
+        memberRepository.save(new Member("member1", 10));
+        memberRepository.save(new Member("member2", 10));
+        memberRepository.save(new Member("member3", 20));
+        em.flush();
+        em.clear();
+
+        List<MemberSummary> summaries = memberRepository.findByAge(10, MemberSummary.class);
+        List<UsernameAgeDto> dtos = memberRepository.findByAge(10, UsernameAgeDto.class);
+
+        assertThat(summaries).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+        assertThat(dtos).containsExactlyInAnyOrder(new UsernameAgeDto("member1", 10), new UsernameAgeDto("member2", 10));
+
+        // 엔티티를 만들지 않았으니 영속성 컨텍스트는 비어있다.
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0);
+    }
+
     @Test
     public void findByNames() {
         Member m1 = new Member("AAA", 10);
@@ -157,6 +221,23 @@ class JpaRepositoryTest {
         }
     }
 
+    @Test
+    public void findByNamesChunked() {
+        List<Member> members = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            members.add(new Member("member" + i, 10));
+            names.add("member" + i);
+        }
+        memberRepository.saveAllBatched(members, 100);
+
+        // 512 개씩 3번 나눠서 조회한 결과를 합친다. (중복 이름은 한 번만 조회)
+        names.add("member0");
+        List<Member> result = memberRepository.findByNames(names);
+
+        assertThat(result.size()).isEqualTo(1200);
+    }
+
     @Test
     public void returnType() {
         Member m1 = new Member("AAA", 10);
@@ -260,6 +341,144 @@ class JpaRepositoryTest {
         assertThat(hasNextPage).isTrue();
     }
 
+    @Test
+    public void keysetPaging() {
+        memberRepository.save(new Member("member1", 10));
+        memberRepository.save(new Member("member2", 10));
+        memberRepository.save(new Member("member3", 10));
+        memberRepository.save(new Member("member4", 10));
+        memberRepository.save(new Member("member5", 10));
+        memberRepository.save(new Member("member6", 20));
+
+        // 첫 페이지는 토큰 없이 조회
+        KeysetSlice<Member> first = memberRepository.findByAgeKeyset(10, null, 3);
+
+        // 다음 페이지는 첫 페이지가 돌려준 토큰으로 조회 (offset X)
+        KeysetSlice<Member> second = memberRepository.findByAgeKeyset(10, first.getNextToken(), 3);
+
+        assertThat(first.getContent()).extracting("username")
+                .containsExactly("member5", "member4", "member3");
+        assertThat(first.hasNext()).isTrue();
+
+        assertThat(second.getContent()).extracting("username")
+                .containsExactly("member2", "member1");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    public void keysetPagingWithNullUsername() {
+        // username 이 null 인 행은 맨 뒤에 오고, 페이지 경계를 넘어가도 빠지거나 반복되지 않아야 한다.
+        // 문자열 "null" 인 username 과도 구분되어야 한다.
+        Member member1 = memberRepository.save(new Member("member1", 10));
+        Member literalNull = memberRepository.save(new Member("null", 10));
+        Member nullName1 = memberRepository.save(new Member(null, 10));
+        Member nullName2 = memberRepository.save(new Member(null, 10));
+        Member nullName3 = memberRepository.save(new Member(null, 10));
+
+        List<Long> ids = new ArrayList<>();
+        String token = null;
+        do {
+            KeysetSlice<Member> slice = memberRepository.findByAgeKeyset(10, token, 2);
+            slice.getContent().forEach(member -> ids.add(member.getId()));
+            token = slice.getNextToken();
+        } while (token != null);
+
+        assertThat(ids).containsExactly(literalNull.getId(), member1.getId(),
+                nullName3.getId(), nullName2.getId(), nullName1.getId());
+        assertThat(MemberCursor.decode(MemberCursor.of(nullName1).encode()).getUsername()).isNull();
+        assertThat(MemberCursor.decode(MemberCursor.of(literalNull).encode()).getUsername()).isEqualTo("null");
+    }
+
+    @Test
+    public void cachedCountPaging() {
+        // Member 를 변경한 트랜잭션 안에서는 캐시를 쓰지 않으므로 데이터는 다른 트랜잭션에서 커밋한다.
+        int age = unusedAge();
+        List<Long> ids = inNewTx(() -> Stream.of("countMember1", "countMember2", "countMember3", "countMember4", "countMember5")
+                .map(username -> memberRepository.save(new Member(username, age)).getId())
+                .collect(Collectors.toCollection(ArrayList::new)));
+        QueryStatistics countQuery = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics()
+                .getQueryStatistics("select count(m) from Member m where m.age = :age");
+        long countsBefore = countQuery.getExecutionCount();
+
+        // 두 페이지 모두 꽉 차 있어서 count 가 필요하지만, count 쿼리는 처음 한 번만 나간다.
+        Page<Member> page0 = memberRepository.findByAge(age, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "username")));
+        Page<Member> page1 = memberRepository.findByAge(age, PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "username")));
+
+        assertThat(page0.getContent()).extracting("username").containsExactly("countMember5", "countMember4");
+        assertThat(page1.getContent()).extracting("username").containsExactly("countMember3", "countMember2");
+        assertThat(page0.getTotalElements()).isEqualTo(5);
+        assertThat(page1.getTotalElements()).isEqualTo(5);
+        assertThat(countQuery.getExecutionCount()).isEqualTo(countsBefore + 1);
+
+        // 등록이 커밋되면 캐시된 count 에 변경분을 더한다. (count 쿼리 없이)
+        ids.add(inNewTx(() -> memberRepository.save(new Member("countMember6", age)).getId()));
+        Page<Member> afterInsert = memberRepository.findByAge(age, PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "username")));
+        assertThat(afterInsert.getTotalElements()).isEqualTo(6);
+        assertThat(countQuery.getExecutionCount()).isEqualTo(countsBefore + 1);
+
+        inNewTxWithoutResult(() -> ids.forEach(memberRepository::deleteById));
+    }
+
+    @Test
+    public void saveAllBatched() {
+        Team team = new Team("teamA");
+        teamRepository.save(team);
+
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            members.add(new Member("member" + i, 10, team));
+        }
+
+        long saved = memberRepository.saveAllBatched(members, 50);
+
+        // 50 개씩 flush 후 clear 했으니 영속성 컨텍스트에 남아있는 Member 가 없다.
+        assertThat(saved).isEqualTo(120);
+        assertThat(em.contains(members.get(0))).isFalse();
+        assertThat(memberRepository.count()).isEqualTo(120);
+    }
+
+    @Test
+    public void streamAll() {
+        Team team = new Team("teamA");
+        teamRepository.save(team);
+        memberRepository.save(new Member("member1", 10, team));
+        memberRepository.save(new Member("member2", 20, team));
+        memberRepository.save(new Member("member3", 30, null));
+
+        em.flush();
+        em.clear();
+
+        // 다음 행을 읽을 때 이전 행은 detach 되므로, 영속성 컨텍스트에 쌓이지 않는다.
+        List<Member> processed = new ArrayList<>();
+        long count = memberRepository.forEachMember(100, member -> {
+            assertThat(em.contains(member)).isTrue();
+            processed.add(member);
+        });
+
+        assertThat(count).isEqualTo(3);
+        assertThat(processed).noneMatch(member -> em.contains(member));
+    }
+
+    @Test
+    public void secondLevelCache() {
+        Team team = new Team("teamA");
+        teamRepository.save(team);
+        Member member = new Member("member1", 20, team);
+        memberRepository.save(member);
+
+        em.flush();
+        em.clear();
+
+        // DB 에서 조회하면서 2차 캐시에 올라간다.
+        Member findMember = memberRepository.findById(member.getId()).get();
+        findMember.getTeam().getName();
+        assertThat(em.getEntityManagerFactory().getCache().contains(Team.class, team.getId())).isTrue();
+
+        // 벌크 쿼리 이후에는 Member 캐시 영역이 무효화된다.
+        memberRepository.bulkAgePlus(20);
+        assertThat(em.getEntityManagerFactory().getCache().contains(Member.class, member.getId())).isFalse();
+    }
+
     @Test
     public void bulkUpdate() {
         // JpaRepository 의 save() 내부의 em.persist() 에 의해 영속성 컨텍스트에 추가된다.
@@ -285,6 +504,374 @@ class JpaRepositoryTest {
 
     }
 
+    @Test
+    public void bulkUpdateInPlace() {
+        memberRepository.save(new Member("member1", 10));
+        memberRepository.save(new Member("member2", 20));
+        Member member3 = memberRepository.save(new Member("member3", 30));
+
+        int resultCount = memberRepository.bulkAgePlusInPlace(20);
+
+        // 영속성 컨텍스트를 비우지 않았는데도 이미 들고 있던 엔티티에 변경이 반영되어 있다.
+        assertThat(resultCount).isEqualTo(2);
+        assertThat(em.contains(member3)).isTrue();
+        assertThat(member3.getAge()).isEqualTo(31);
+        assertThat(memberRepository.findMemberByUsername("member1").getAge()).isEqualTo(10);
+    }
+
+    @Test
+    public void optimisticLockRetry() {
+        // updateWithRetry() 는 재시도 executor 로 새 트랜잭션에서 실행되고 커밋된다. (테스트 끝에 직접 지운다)
+        Long id = inNewTx(() -> memberRepository.save(new Member("retryMember", 10)).getId());
+
+        AtomicInteger attempts = new AtomicInteger();
+        Member updated = memberRepository.updateWithRetry(id, member -> {
+            if (attempts.incrementAndGet() == 1) {
+                // 첫 번째 시도 도중에 다른 트랜잭션이 먼저 수정하고 커밋한다. -> 첫 번째 시도는 version 충돌
+                inNewTxWithoutResult(() -> memberRepository.findById(id).get().setAge(20));
+            }
+            member.setAge(member.getAge() + 1);
+        });
+
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(updated.getAge()).isEqualTo(21);
+
+        inNewTxWithoutResult(() -> memberRepository.deleteById(id));
+    }
+
+    @Test
+    public void teamStats() {
+        // team_stats 는 커밋 직전에 갱신되므로 테스트 트랜잭션(롤백) 대신 새 트랜잭션에서 커밋한다. (테스트 끝에 직접 지운다)
+        int age = unusedAge();
+        Long[] ids = inNewTx(() -> {
+            Team teamA = teamRepository.save(new Team("statsTeamA"));
+            Team teamB = teamRepository.save(new Team("statsTeamB"));
+            memberRepository.save(new Member("statsMember1", age + 10, teamA));
+            memberRepository.save(new Member("statsMember2", age + 20, teamA));
+            Member moved = memberRepository.save(new Member("statsMember3", age + 30, teamA));
+            return new Long[]{teamA.getId(), teamB.getId(), moved.getId()};
+        });
+
+        assertTeamStats(ids[0], 3, 3L * age + 60);
+        assertTeamStats(ids[1], 0, 0);
+
+        // 팀 변경 + 나이 변경 (dirty checking)
+        inNewTxWithoutResult(() -> {
+            Member moved = memberRepository.findById(ids[2]).get();
+            moved.changeTeam(teamRepository.findById(ids[1]).get());
+            moved.setAge(age + 40);
+        });
+
+        assertTeamStats(ids[0], 2, 2L * age + 30);
+        assertTeamStats(ids[1], 1, age + 40);
+        assertThat(inNewTx(() -> teamRepository.findStats(ids[0]).get().getAverageAge())).isEqualTo(age + 15.0);
+
+        // 벌크 수정 (age + 20 이상인 Member 모두 +1)
+        inNewTxWithoutResult(() -> memberRepository.bulkAgePlus(age + 20));
+
+        assertTeamStats(ids[0], 2, 2L * age + 31);
+        assertTeamStats(ids[1], 1, age + 41);
+
+        inNewTxWithoutResult(() -> {
+            memberRepository.deleteAll(memberRepository.findByNames(
+                    Arrays.asList("statsMember1", "statsMember2", "statsMember3")));
+            teamRepository.deleteAllById(Arrays.asList(ids[0], ids[1]));
+        });
+
+        assertThat(inNewTx(() -> teamRepository.findStats(ids[0]))).isEmpty();
+    }
+
+    @Test
+    public void teamStatsWithBulkUpdate() {
+        int age = unusedAge();
+        Long teamId = inNewTx(() -> teamRepository.save(new Team("bulkStatsTeam")).getId());
+        assertTeamStats(teamId, 0, 0);
+
+        // 같은 트랜잭션에서 등록 -> 벌크 수정 -> 커밋
+        // 벌크 쿼리 전에 flush 된 등록분이 나이 합계에 두 번 더해지면 안 된다.
+        inNewTxWithoutResult(() -> {
+            Team team = teamRepository.findById(teamId).get();
+            memberRepository.save(new Member("bulkStatsMember1", age, team));
+            memberRepository.save(new Member("bulkStatsMember2", age + 100, team));
+            memberRepository.bulkAgePlus(age);
+        });
+
+        assertTeamStats(teamId, 2, (age + 1) + (age + 101L));
+
+        // 호출한 쪽에 트랜잭션이 없어도 벌크 쿼리와 같은 트랜잭션에서 대상 팀원 수만큼만 더해진다.
+        memberRepository.bulkAgePlus(age + 50);
+
+        assertTeamStats(teamId, 2, (age + 1) + (age + 102L));
+
+        // 레포지토리 프록시와 구현체를 거치는 bulkAgePlusInPlace() 도 한 번만 더해진다.
+        memberRepository.bulkAgePlusInPlace(age + 50);
+
+        assertTeamStats(teamId, 2, (age + 1) + (age + 103L));
+
+        inNewTxWithoutResult(() -> {
+            memberRepository.deleteAll(memberRepository.findByNames(
+                    Arrays.asList("bulkStatsMember1", "bulkStatsMember2")));
+            teamRepository.deleteById(teamId);
+        });
+    }
+
+    @Test
+    public void teamStatsBackfill() {
+        int age = unusedAge();
+        Long teamId = inNewTx(() -> {
+            Team team = teamRepository.save(new Team("backfillTeam"));
+            memberRepository.save(new Member("backfillMember1", age, team));
+            memberRepository.save(new Member("backfillMember2", age + 10, team));
+            return team.getId();
+        });
+
+        // 기능이 생기기 전부터 있던 팀처럼 집계 행을 지운다.
+        inNewTxWithoutResult(() -> em.createNativeQuery("delete from team_stats where team_id = :teamId")
+                .setParameter("teamId", teamId)
+                .executeUpdate());
+        assertThat(inNewTx(() -> teamRepository.findStats(teamId))).isEmpty();
+
+        assertThat(teamStatsMaintainer.backfill()).isGreaterThanOrEqualTo(1);
+        assertTeamStats(teamId, 2, 2L * age + 10);
+
+        // 이미 행이 있는 팀은 건드리지 않는다.
+        assertThat(teamStatsMaintainer.backfill()).isZero();
+
+        inNewTxWithoutResult(() -> {
+            memberRepository.deleteAll(memberRepository.findByNames(
+                    Arrays.asList("backfillMember1", "backfillMember2")));
+            teamRepository.deleteById(teamId);
+        });
+    }
+
+    @Test
+    public void connectionPoolMetrics() {
+        memberRepository.save(new Member("member1", 10));
+        memberRepository.findByUsername("member1");
+        memberRepository.findByUsername("member1");
+
+        // 테스트 트랜잭션이 커넥션 하나를 잡고 있다.
+        ConnectionPoolStatsDto pool = connectionPoolMetrics.snapshot();
+        assertThat(pool.getMax()).isEqualTo(dataAccessProperties.getPoolSize());
+        assertThat(pool.getActive()).isGreaterThanOrEqualTo(1);
+        assertThat(pool.getAcquired()).isGreaterThanOrEqualTo(1);
+
+        // 같은 JPQL 은 두 번째부터 플랜 캐시에서 꺼낸다.
+        StatementCacheStatsDto statements = statementCacheStatistics.snapshot();
+        assertThat(statements.getQueryPlanCacheHits()).isGreaterThanOrEqualTo(1);
+        assertThat(statements.getPreparedStatements()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    public void repositoryWarmup() {
+        // 테스트 컨텍스트에서는 기동 시 워밍업이 꺼져 있으므로 직접 실행한다. (src/test/resources/config/application.yml)
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        long queryCachePuts = statistics.getQueryCachePutCount();
+
+        List<QueryWarmupDto> results = repositoryWarmup.warmUp();
+        assertThat(repositoryWarmup.getResults()).isEqualTo(results);
+
+        assertThat(results).extracting("query")
+                .contains("MemberRepository.findMemberDto", "MemberRepository.findByUsername",
+                        "MemberRepository.findMemberFetchJoin", "MemberRepository.findByAge");
+        assertThat(results).filteredOn("query", "MemberRepository.findMemberDto")
+                .extracting("executions").containsOnly(3);
+
+        // 벌크 수정, 비동기 메서드는 실행하지 않는다.
+        assertThat(results).filteredOn("query", "MemberRepository.bulkAgePlus")
+                .extracting("executions").containsOnly(0);
+        assertThat(results).filteredOn("query", "MemberRepository.findMemberDtoAsync")
+                .extracting("executions").containsOnly(0);
+
+        // 레포지토리 메서드가 아니라 NamedQuery 를 EntityManager 로 직접 실행하므로 쿼리 캐시 힌트, UsernameIndex 를 거치지 않는다.
+        assertThat(results).filteredOn("query", "MemberRepository.findByUsername")
+                .extracting("executions").containsOnly(3);
+        assertThat(statistics.getQueryCachePutCount()).isEqualTo(queryCachePuts);
+
+        // 메서드 이름 쿼리는 선언된 JPQL 이 없으므로 실행하지 않는다.
+        assertThat(results).filteredOn("query", "MemberRepository.findByUsernameAndAgeGreaterThan")
+                .extracting("executions").containsOnly(0);
+    }
+
+    @Test
+    public void usernameIndex() {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        memberRepository.findByUsername("indexedMember");
+        long queries = statistics.getQueryExecutionCount();
+
+        // 없는 username 은 두 번째부터 DB 에 가지 않는다.
+        assertThat(memberRepository.findByUsername("indexedMember")).isEmpty();
+        assertThat(memberRepository.findOptionalByUsername("indexedMember")).isEmpty();
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(queries);
+
+        // 다른 트랜잭션에서 등록이 커밋되면 캐시가 지워지고, 있는 username 은 id 로 조회한다.
+        Long id = inNewTx(() -> memberRepository.save(new Member("indexedMember", 10)).getId());
+        assertThat(memberRepository.findMemberByUsername("indexedMember").getId()).isEqualTo(id);
+
+        inNewTxWithoutResult(() -> memberRepository.deleteById(id));
+        assertThat(memberRepository.findOptionalByUsername("indexedMember")).isEmpty();
+    }
+
+    @Test
+    public void usernameIndexWithUnflushedRename() {
+        // "renamedMember" 는 없는 username 으로 캐시된다.
+        assertThat(memberRepository.findByUsername("renamedMember")).isEmpty();
+        Long id = inNewTx(() -> memberRepository.save(new Member("beforeRename", 10)).getId());
+
+        // flush 전에 username 만 바꾼 상태에서도 원래 쿼리처럼 (auto flush 후) 찾아야 한다.
+        List<Member> found = inNewTx(() -> {
+            memberRepository.findById(id).get().setUsername("renamedMember");
+            return memberRepository.findByUsername("renamedMember");
+        });
+        assertThat(found).extracting("id").containsExactly(id);
+
+        inNewTxWithoutResult(() -> memberRepository.deleteById(id));
+    }
+
+    @Test
+    public void forEachMemberDto() {
+        Team teamA = teamRepository.save(new Team("teamA"));
+        memberRepository.save(new Member("exportMember1", 10, teamA));
+        memberRepository.save(new Member("exportMember2", 20));
+        em.flush();
+        em.clear();
+
+        List<MemberDto> exported = new ArrayList<>();
+        long count = memberRepository.forEachMemberDto(1, exported::add);
+
+        // 팀이 없는 Member 도 내보낸다. DTO 라 영속성 컨텍스트에는 아무것도 남지 않는다.
+        assertThat(count).isEqualTo(exported.size());
+        assertThat(exported).extracting("username", "teamName")
+                .contains(tuple("exportMember1", "teamA"), tuple("exportMember2", null));
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    public void findMemberDtoDirect() {
+        Team teamA = teamRepository.save(new Team("teamA"));
+        memberRepository.save(new Member("directMember1", 10, teamA));
+        memberRepository.save(new Member("directMember2", 20));
+
+        // flush 전이어도 조회 전에 flush 하므로 방금 저장한 Member 가 보인다.
+        List<MemberDto> direct = memberRepository.findMemberDtoDirect();
+
+        assertThat(direct).extracting("username", "teamName").contains(tuple("directMember1", "teamA"));
+        assertThat(direct).extracting("username").doesNotContain("directMember2");
+        assertThat(direct).extracting("id", "username", "teamName")
+                .containsExactlyInAnyOrderElementsOf(memberRepository.findMemberDto().stream()
+                        .map(dto -> tuple(dto.getId(), dto.getUsername(), dto.getTeamName()))
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void writeBehindBuffer() {
+        // 기본 설정은 꺼져 있으므로 켜진 버퍼를 직접 만든다. (시간 트리거는 테스트 중에 돌지 않도록 길게)
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(em, retryExecutor, true, 50, 1000, Duration.ofHours(1));
+        Long id = inNewTx(() -> memberRepository.save(new Member("writeBehindMember", 10)).getId());
+        Long version = inNewTx(() -> memberRepository.findById(id).get().getVersion());
+
+        buffer.updateAge(id, 11);
+        buffer.updateAge(id, 12);
+        buffer.updateUsername(id, "writeBehindMember2");
+
+        // 같은 Member 에 대한 수정은 하나로 합쳐지고, flush 전에는 DB 에 반영되지 않는다.
+        assertThat(buffer.pendingCount()).isEqualTo(1);
+        assertThat(inNewTx(() -> memberRepository.findById(id).get().getAge())).isEqualTo(10);
+
+        buffer.flushNow();
+
+        // update 한 번 (version 도 한 번만 증가)
+        Member flushed = inNewTx(() -> memberRepository.findById(id).get());
+        assertThat(flushed.getAge()).isEqualTo(12);
+        assertThat(flushed.getUsername()).isEqualTo("writeBehindMember2");
+        assertThat(flushed.getVersion()).isEqualTo(version + 1);
+        assertThat(buffer.pendingCount()).isZero();
+
+        buffer.close();
+        inNewTxWithoutResult(() -> memberRepository.deleteById(id));
+
+        // 꺼져 있으면 호출한 쪽 트랜잭션에 참여해서, 이미 조회해둔 Member 에 바로 반영한다. (테스트 트랜잭션과 함께 롤백)
+        MemberWriteBehindBuffer disabled = new MemberWriteBehindBuffer(em, retryExecutor, false, 50, 1000, Duration.ofHours(1));
+        Member member = memberRepository.save(new Member("writeThroughMember", 10));
+        disabled.updateAge(member.getId(), 20);
+        assertThat(member.getAge()).isEqualTo(20);
+        assertThat(disabled.pendingCount()).isZero();
+    }
+
+    @Test
+    public void pageSnapshotCache() {
+        int age = unusedAge();
+        List<Long> ids = inNewTx(() -> Stream.of("pageMember1", "pageMember2", "pageMember3")
+                .map(username -> memberRepository.save(new Member(username, age)).getId())
+                .collect(Collectors.toList()));
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.ASC, "username"));
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        Page<Member> first = memberRepository.findByAge(age, pageRequest);
+        long queries = statistics.getQueryExecutionCount();
+
+        // 같은 페이지를 다시 요청하면 content, count 쿼리 모두 나가지 않는다.
+        Page<Member> second = memberRepository.findByAge(age, pageRequest);
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(queries);
+        assertThat(second.getContent()).extracting("username").containsExactly("pageMember1", "pageMember2");
+        assertThat(second.getTotalElements()).isEqualTo(first.getTotalElements()).isEqualTo(3);
+
+        // 벌크 수정이 커밋되면 캐시를 버리고 다시 DB 에서 조회한다.
+        inNewTxWithoutResult(() -> memberRepository.bulkAgePlus(age));
+        Page<Member> afterBulk = memberRepository.findByAge(age, pageRequest);
+        assertThat(statistics.getQueryExecutionCount()).isGreaterThan(queries);
+        assertThat(afterBulk.getTotalElements()).isZero();
+
+        inNewTxWithoutResult(() -> ids.forEach(memberRepository::deleteById));
+    }
+
+    @Test
+    public void pageSnapshotCacheWithUnflushedChange() {
+        int age = unusedAge();
+        List<Long> ids = inNewTx(() -> Stream.of("dirtyPageMember1", "dirtyPageMember2")
+                .map(username -> memberRepository.save(new Member(username, age)).getId())
+                .collect(Collectors.toList()));
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.ASC, "username"));
+        memberRepository.findByAge(age, pageRequest); // 캐시에 넣는다.
+
+        // flush 전에 나이만 바꾼 Member 는 원래 쿼리처럼 (auto flush 후) 결과에서 빠져야 한다.
+        Page<Member> page = inNewTx(() -> {
+            memberRepository.findById(ids.get(0)).get().setAge(age + 1);
+            return memberRepository.findByAge(age, pageRequest);
+        });
+        assertThat(page.getContent()).extracting("username").containsExactly("dirtyPageMember2");
+        assertThat(page.getTotalElements()).isEqualTo(1);
+
+        inNewTxWithoutResult(() -> ids.forEach(memberRepository::deleteById));
+    }
+
+    // 테스트 트랜잭션 (롤백) 과 별개로 바로 커밋하는 새 트랜잭션
+    // 다른 스레드 / 다른 트랜잭션에서 읽는 기능이나 커밋 시점에 동작하는 기능을 테스트할 때 쓴다. (커밋한 데이터는 테스트 끝에 직접 지운다)
+    private <T> T inNewTx(Supplier<T> work) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return tx.execute(status -> work.get());
+    }
+
+    private void inNewTxWithoutResult(Runnable work) {
+        inNewTx(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // 커밋된 어떤 Member 보다 큰 나이 : 나이로 조회하거나 bulkAgePlus(age) 를 해도 이 테스트에서 넣은 Member 만 걸린다.
+    private int unusedAge() {
+        return inNewTx(() -> em.createQuery("select coalesce(max(m.age), 0) from Member m", Integer.class)
+                .getSingleResult()) + 1;
+    }
+
+    private void assertTeamStats(Long teamId, long memberCount, long ageSum) {
+        TeamStats stats = inNewTx(() -> teamRepository.findStats(teamId).get());
+        assertThat(stats.getMemberCount()).isEqualTo(memberCount);
+        assertThat(stats.getAgeSum()).isEqualTo(ageSum);
+    }
+
     @Test
     public void findMemberLazy() {
         //given
@@ -320,6 +907,97 @@ class JpaRepositoryTest {
         }
     }
 
+    @Test
+    public void batchFetch() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Team team = new Team("team" + i);
+            teamRepository.save(team);
+            memberRepository.save(new Member("member" + i, 10, team));
+            names.add("member" + i);
+        }
+
+        em.flush();
+        em.clear();
+
+        BatchFetchStatsDto before = batchFetchStatistics.snapshot();
+
+        // 첫 번째 getTeam() 에서 나머지 팀들도 IN 쿼리 한 번으로 같이 가져온다.
+        List<Member> members = memberRepository.findByNames(names);
+        for (Member member : members) {
+            member.getTeam().getName();
+        }
+
+        BatchFetchStatsDto after = batchFetchStatistics.snapshot();
+        assertThat(after.getEntityFetchQueries() - before.getEntityFetchQueries()).isEqualTo(1);
+        assertThat(after.getAvoidedQueries() - before.getAvoidedQueries()).isEqualTo(4);
+
+        // fetch join 으로 같이 가져온 컬렉션은 로딩 수에만 잡히고, 아낀 쿼리로 세지 않는다.
+        em.clear();
+        List<Team> teams = em.createQuery("select distinct t from Team t join fetch t.members m where m.username in :names", Team.class)
+                .setParameter("names", names)
+                .getResultList();
+        teams.forEach(team -> team.getMembers().size());
+
+        BatchFetchStatsDto joined = batchFetchStatistics.snapshot();
+        assertThat(joined.getCollectionLoads() - after.getCollectionLoads()).isEqualTo(5);
+        assertThat(joined.getLazyCollectionInitializations()).isEqualTo(after.getLazyCollectionInitializations());
+        assertThat(joined.getAvoidedQueries()).isEqualTo(after.getAvoidedQueries());
+    }
+
+    @Test
+    public void batchFetchWithSecondLevelCache() {
+        // datajpa.jdbc.batch-fetch-size 가 하이버네이트 설정으로 들어간다.
+        assertThat(em.getEntityManagerFactory().getProperties().get(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE))
+                .hasToString(String.valueOf(dataAccessProperties.getBatchFetchSize()));
+
+        // 2차 캐시에 Team 을 올리려면 커밋해야 하므로 새 트랜잭션에서 넣는다. (테스트 끝에 직접 지운다)
+        int age = unusedAge();
+        List<String> names = Arrays.asList("cachedTeamMember0", "cachedTeamMember1", "cachedTeamMember2");
+        List<Long> teamIds = inNewTx(() -> names.stream()
+                .map(username -> {
+                    Team team = teamRepository.save(new Team(username + "Team"));
+                    memberRepository.save(new Member(username, age, team));
+                    return team.getId();
+                })
+                .collect(Collectors.toList()));
+        inNewTxWithoutResult(() -> teamIds.forEach(id -> em.find(Team.class, id)));
+
+        BatchFetchStatsDto before = batchFetchStatistics.snapshot();
+
+        // 2차 캐시에 있는 Team 은 배치 IN 쿼리 없이 캐시에서 하나씩 꺼낸다. 아낀 쿼리로 세면 안 된다.
+        inNewTxWithoutResult(() -> memberRepository.findByNames(names)
+                .forEach(member -> member.getTeam().getName()));
+
+        BatchFetchStatsDto after = batchFetchStatistics.snapshot();
+        assertThat(after.getLazyEntityLoads() - before.getLazyEntityLoads()).isEqualTo(3);
+        assertThat(after.getEntityFetchQueries() - before.getEntityFetchQueries()).isZero();
+        assertThat(after.getAvoidedQueries() - before.getAvoidedQueries()).isZero();
+
+        inNewTxWithoutResult(() -> {
+            memberRepository.deleteAll(memberRepository.findByNames(names));
+            teamRepository.deleteAllById(teamIds);
+        });
+    }
+
+    @Test
+    public void repositoryMetrics() {
+        memberRepository.save(new Member("AAA", 10));
+        memberRepository.save(new Member("BBB", 20));
+
+        memberRepository.findByNames(Arrays.asList("AAA", "BBB"));
+
+        RepositoryMethodStatsDto stats = repositoryMetricsAspect.snapshot().stream()
+                .filter(dto -> dto.getMethod().equals("MemberRepository.findByNames"))
+                .findFirst()
+                .get();
+
+        // select 쿼리 전에 auto flush 로 insert 가 먼저 나간다.
+        assertThat(stats.getCalls()).isGreaterThanOrEqualTo(1);
+        assertThat(stats.getRowsReturned()).isGreaterThanOrEqualTo(2);
+        assertThat(stats.getStatements()).isGreaterThanOrEqualTo(1);
+    }
+
     @Test
     public void queryHint() {
         Member member = new Member("member1", 10);
@@ -338,6 +1016,95 @@ class JpaRepositoryTest {
         em.flush();
     }
 
+    @Test
+    public void readOnlyQuery() {
+        memberRepository.save(new Member("member1", 10));
+        em.flush();
+        em.clear();
+
+        List<Member> members = memberRepository.findByNames(Arrays.asList("member1"));
+
+        // @ReadOnlyQuery 로 조회한 엔티티는 readOnly 라서 변경 감지 대상이 아니다.
+        Session session = em.unwrap(Session.class);
+        assertThat(session.isReadOnly(members.get(0))).isTrue();
+    }
+
+    @Test
+    public void asyncQuery() throws Exception {
+        // 비동기 조회는 다른 스레드, 다른 트랜잭션에서 실행되므로 데이터는 다른 트랜잭션에서 커밋한다.
+        Long id = inNewTx(() -> memberRepository.save(new Member("asyncMember", 10)).getId());
+        long teams = teamRepository.count();
+
+        // executor 스레드를 모두 잡아두면 조회는 큐에서 기다리므로, 완료 콜백은 조회가 끝난 executor 스레드에서 실행된다.
+        ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) repositoryExecutor;
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < executor.getMaxPoolSize(); i++) {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        try {
+            CompletableFuture<List<Member>> members = memberRepository.findAsyncListByUsername("asyncMember");
+            CompletableFuture<Long> teamCount = teamRepository.countAsyncBy();
+            List<String> threads = new CopyOnWriteArrayList<>();
+            CompletableFuture<Void> recorded = CompletableFuture.allOf(
+                    members.thenRun(() -> threads.add(Thread.currentThread().getName())),
+                    teamCount.thenRun(() -> threads.add(Thread.currentThread().getName())));
+            release.countDown();
+
+            assertThat(members.get(5, TimeUnit.SECONDS)).extracting("id").containsExactly(id);
+            assertThat(teamCount.get(5, TimeUnit.SECONDS)).isEqualTo(teams);
+            recorded.get(5, TimeUnit.SECONDS);
+            assertThat(threads).hasSize(2).allMatch(name -> name.startsWith("repository-"));
+        } finally {
+            release.countDown();
+            inNewTxWithoutResult(() -> memberRepository.deleteById(id));
+        }
+    }
+
+    @Test
+    public void scanPartitioned() {
+        // 파티션 스캔은 별도 트랜잭션에서 읽으므로 데이터는 다른 트랜잭션에서 커밋한다. (파티션 하나의 CHUNK_SIZE 보다 많이)
+        int age = unusedAge();
+        List<Member> members = IntStream.range(0, 600)
+                .mapToObj(i -> new Member("scanMember" + i, age + i % 3))
+                .collect(Collectors.toList());
+        inNewTxWithoutResult(() -> memberRepository.saveAllBatched(members, 100));
+        List<Long> ids = members.stream().map(Member::getId).collect(Collectors.toList());
+
+        try {
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+            Map<Integer, Long> countByAge = memberRepository.scanPartitioned(4, member -> {
+                threads.add(Thread.currentThread().getName());
+                return member.getAge();
+            }, Collectors.groupingBy(memberAge -> memberAge, Collectors.counting()));
+
+            // 한 스레드에서 전체를 읽어서 센 결과와 같아야 한다. (mapper 는 파티션 스레드에서 실행)
+            Map<Integer, Long> expected = inNewTx(() -> memberRepository.findAll().stream()
+                    .collect(Collectors.groupingBy(Member::getAge, Collectors.counting())));
+            assertThat(countByAge).isEqualTo(expected);
+            assertThat(countByAge).containsEntry(age, 200L).containsEntry(age + 1, 200L).containsEntry(age + 2, 200L);
+            assertThat(threads).allMatch(name -> name.startsWith("member-scan-"));
+
+            // mapper 가 실패하면 나머지 파티션을 멈추고 호출한 쪽에 원래 예외를 던진다.
+            assertThatThrownBy(() -> memberRepository.scanPartitioned(4, member -> {
+                if ("scanMember300".equals(member.getUsername())) {
+                    throw new IllegalStateException("scan failed");
+                }
+                return member.getAge();
+            }, Collectors.counting()))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("scan failed");
+        } finally {
+            inNewTxWithoutResult(() -> memberRepository.deleteAllById(ids));
+        }
+    }
+
     @Test
     public void callCustom() {
         List<Member> memberCustom = memberRepository.findMemberCustom();